@@ -1,5 +1,10 @@
 package forex.broker;
 
+import forex.market.Instrument;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
 public abstract class BaseContext implements Context {
 
     @Override
@@ -37,6 +42,16 @@ public abstract class BaseContext implements Context {
         return instrument().candles(request);
     }
 
+    @Override
+    public StreamSubscription streamPrices(String accountID, Set<Instrument> instruments, Consumer<Price> listener) {
+        return streaming().prices(accountID, instruments, listener);
+    }
+
+    @Override
+    public StreamSubscription streamTransactions(String accountID, Consumer<String> listener) {
+        return streaming().transactions(accountID, listener);
+    }
+
     protected abstract PricingContext pricing();
 
     protected abstract OrderContext order();
@@ -46,4 +61,8 @@ public abstract class BaseContext implements Context {
     protected abstract AccountContext account();
 
     protected abstract InstrumentContext instrument();
+
+    protected StreamingContext streaming() {
+        throw new UnsupportedOperationException("Streaming is not supported!");
+    }
 }
@@ -1,8 +1,11 @@
 package forex.broker;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import forex.market.AccountSnapshot;
+import forex.market.CandleSeries;
 import forex.market.Instrument;
 import forex.market.InstrumentDataRetriever;
 import forex.market.InstrumentHistoryService;
@@ -10,18 +13,28 @@ import forex.market.MarketTime;
 import forex.trader.ForexTrader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
-import static java.util.Collections.singleton;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @Service
 public class Broker implements ForexBroker {
@@ -37,14 +50,46 @@ public class Broker implements ForexBroker {
     private final InstrumentHistoryService instrumentHistoryService;
     private final InstrumentDataRetriever instrumentDataRetriever;
     private final OrderService orderService;
+    private final PricingSnapshot pricing;
+    @Nullable
+    private final ExecutorService traderExecutor;
+    private final long traderDeadlineMillis;
+    private final Map<ForexTrader, Future<?>> running = new ConcurrentHashMap<>();
 
     public Broker(MarketTime clock, LiveTraders traders, InstrumentHistoryService instrumentHistoryService,
                   InstrumentDataRetriever instrumentDataRetriever, OrderService orderService) {
+        this(clock, traders, instrumentHistoryService, instrumentDataRetriever, orderService,
+                new PricingSnapshot(clock, Duration.ZERO), 1, 0);
+    }
+
+    /**
+     * With more than one trader thread, traders are processed at the same time and the broker stops waiting for any
+     * trader still processing after the deadline, so a slow account doesn't hold up the others. Late traders are left to
+     * finish, and are skipped until they do.
+     */
+    @Autowired
+    public Broker(MarketTime clock, LiveTraders traders, InstrumentHistoryService instrumentHistoryService,
+                  InstrumentDataRetriever instrumentDataRetriever, OrderService orderService, PricingSnapshot pricing,
+                  @Value("${forex.traders.threads:1}") int traderThreads,
+                  @Value("${forex.traders.deadlineMillis:45000}") long traderDeadlineMillis) {
+        Preconditions.checkArgument(traderThreads > 0, "Trader threads must be positive");
+
         this.clock = clock;
         this.tradersByAccountId = Maps.uniqueIndex(traders.getTraders(), ForexTrader::getAccountNumber);
         this.instrumentHistoryService = instrumentHistoryService;
         this.instrumentDataRetriever = instrumentDataRetriever;
         this.orderService = orderService;
+        this.pricing = pricing;
+        this.traderExecutor = traderThreads == 1 ? null : Executors.newFixedThreadPool(traderThreads,
+                new ThreadFactoryBuilder().setNameFormat("trader-%d").setDaemon(true).build());
+        this.traderDeadlineMillis = traderDeadlineMillis;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (traderExecutor != null) {
+            traderExecutor.shutdownNow();
+        }
     }
 
     @Override
@@ -58,20 +103,7 @@ public class Broker implements ForexBroker {
 
     @Override
     public Quote getQuote(ForexTrader trader, Instrument pair) throws Exception {
-        String accountId = trader.getAccountNumber();
-
-        PricingGetRequest request = new PricingGetRequest(accountId, singleton(pair));
-        PricingGetResponse resp = getContext(trader).getPricing(request);
-        List<Price> prices = resp.getPrices();
-
-        if (prices.isEmpty()) {
-            throw new IllegalStateException("Prices were empty!");
-        }
-
-        Price price = prices.iterator().next();
-        LOG.info("Current price for {}: {}", pair, price.toString());
-
-        return new BrokerQuote(price);
+        return pricing.getQuote(getContext(trader), trader.getAccountNumber(), pair);
     }
 
     @Override
@@ -120,34 +152,97 @@ public class Broker implements ForexBroker {
             LOG.error("Unable to retrieve closed candles!", e);
         }
 
+        if (traderExecutor == null) {
+            for (ForexTrader trader : tradersByAccountId.values()) {
+                try {
+                    processUpdates(trader);
+                } catch (Exception e) {
+                    LOG.error("Unable to process trader: {}", trader, e);
+                }
+            }
+            return;
+        }
+
+        Map<ForexTrader, Future<?>> updates = new LinkedHashMap<>();
         for (ForexTrader trader : tradersByAccountId.values()) {
+            Future<?> previous = running.get(trader);
+            if (previous != null && !previous.isDone()) {
+                LOG.warn("Skipping trader still processing the previous interval: {}", trader);
+                continue;
+            }
+
+            Future<?> update = traderExecutor.submit(() -> {
+                processUpdates(trader);
+                return null;
+            });
+            running.put(trader, update);
+            updates.put(trader, update);
+        }
+
+        long deadline = System.nanoTime() + MILLISECONDS.toNanos(traderDeadlineMillis);
+
+        for (Map.Entry<ForexTrader, Future<?>> it : updates.entrySet()) {
+            ForexTrader trader = it.getKey();
+            Future<?> update = it.getValue();
+
             try {
-                trader.processUpdates(this);
-            } catch (Exception e) {
-                LOG.error("Unable to process trader: {}", trader, e);
+                update.get(Math.max(deadline - System.nanoTime(), 0), NANOSECONDS);
+            } catch (ExecutionException e) {
+                LOG.error("Unable to process trader: {}", trader, e.getCause());
+            } catch (TimeoutException e) {
+                // Broker requests can't be interrupted, so the trader is left to finish rather than stopped part way
+                LOG.error("Trader still processing after {} ms, no longer waiting for it: {}", traderDeadlineMillis, trader);
+            } catch (InterruptedException e) {
+                updates.values().forEach(pending -> pending.cancel(false));
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
 
+    /**
+     * Processes the account's trader right away, such as when a transaction is streamed, instead of waiting for the
+     * next interval.
+     */
+    public void processUpdates(String accountID) {
+        ForexTrader trader = tradersByAccountId.get(accountID);
+        if (trader == null || isClosed()) {
+            return;
+        }
+
+        try {
+            processUpdates(trader);
+        } catch (Exception e) {
+            LOG.error("Unable to process trader: {}", trader, e);
+        }
+    }
+
+    private void processUpdates(ForexTrader trader) throws Exception {
+        // Traders aren't thread safe, and can be woken by a stream during an interval
+        synchronized (trader) {
+            trader.processUpdates(this);
+        }
+    }
+
     @Override
-    public NavigableMap<LocalDateTime, CandlestickData> getOneDayCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) {
+    public CandleSeries getOneDayCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) {
         return getCandles(instrumentHistoryService::getOneDayCandles, instrument, timeRange);
     }
 
     @Override
-    public NavigableMap<LocalDateTime, CandlestickData> getFourHourCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) {
+    public CandleSeries getFourHourCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) {
         return getCandles(instrumentHistoryService::getFourHourCandles, instrument, timeRange);
     }
 
     @Override
-    public NavigableMap<LocalDateTime, CandlestickData> getOneWeekCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) {
+    public CandleSeries getOneWeekCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) {
         return getCandles(instrumentHistoryService::getOneWeekCandles, instrument, timeRange);
     }
 
-    private NavigableMap<LocalDateTime, CandlestickData> getCandles(CandlesRequest candlesRequest, Instrument instrument, Range<LocalDateTime> timeRange) {
+    private CandleSeries getCandles(CandlesRequest candlesRequest, Instrument instrument, Range<LocalDateTime> timeRange) {
         LocalDateTime exclusiveEnd = timeRange.upperEndpoint();
 
-        return new TreeMap<>(candlesRequest.request(instrument, timeRange).subMap(timeRange.lowerEndpoint(), exclusiveEnd));
+        return CandleSeries.from(candlesRequest.request(instrument, timeRange)).subSeries(timeRange.lowerEndpoint(), true, exclusiveEnd, false);
     }
 
     private AccountSummary getAccount(ForexTrader trader) throws RequestException {
@@ -1,5 +1,10 @@
 package forex.broker;
 
+import forex.market.Instrument;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
 import static forex.broker.TradeStateFilter.CLOSED;
 
 public interface Context {
@@ -20,6 +25,10 @@ public interface Context {
 
     TradeListResponse listTrade(TradeListRequest request) throws RequestException;
 
+    StreamSubscription streamPrices(String accountID, Set<Instrument> instruments, Consumer<Price> listener);
+
+    StreamSubscription streamTransactions(String accountID, Consumer<String> listener);
+
     default AccountAndTrades initializeAccount(String accountId, int numLastTrades) throws RequestException {
         AccountSummary account = getAccount(accountId).getAccount();
         TradeListResponse tradeListResponse = listTrade(new TradeListRequest(accountId, CLOSED, numLastTrades));
@@ -2,6 +2,7 @@ package forex.broker;
 
 import com.google.common.collect.Range;
 import forex.market.AccountSnapshot;
+import forex.market.CandleSeries;
 import forex.market.Instrument;
 import forex.trader.ForexTrader;
 
@@ -9,7 +10,6 @@ import javax.annotation.Nullable;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.util.EnumSet;
-import java.util.NavigableMap;
 
 public interface ForexBroker {
 
@@ -30,15 +30,15 @@ public interface ForexBroker {
     /**
      * Retrieve one day candles based on an inclusive start and exclusive end.
      */
-    NavigableMap<LocalDateTime, CandlestickData> getOneDayCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) throws RequestException;
+    CandleSeries getOneDayCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) throws RequestException;
 
     /**
      * Retrieve four hour candles based on an inclusive start and exclusive end.
      */
-    NavigableMap<LocalDateTime, CandlestickData> getFourHourCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) throws RequestException;
+    CandleSeries getFourHourCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) throws RequestException;
 
     /**
      * Retrieve one week candles based on an inclusive start and exclusive end.
      */
-    NavigableMap<LocalDateTime, CandlestickData> getOneWeekCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) throws RequestException;
+    CandleSeries getOneWeekCandles(ForexTrader trader, Instrument instrument, Range<LocalDateTime> timeRange) throws RequestException;
 }
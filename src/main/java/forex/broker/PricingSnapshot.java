@@ -0,0 +1,122 @@
+package forex.broker;
+
+import forex.market.Instrument;
+import forex.market.MarketTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static forex.broker.Quote.invert;
+import static java.util.stream.Collectors.toCollection;
+
+/**
+ * Prices for every instrument from one pricing request, shared by all traders until they are older than the max age.
+ * Inverse instruments are priced from their broker instrument, so each snapshot is a single request. Streamed prices
+ * keep the snapshot current without any requests.
+ */
+@Service
+public class PricingSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PricingSnapshot.class);
+
+    public static final Set<Instrument> BROKER_INSTRUMENTS = Arrays.stream(Instrument.values())
+            .filter(it -> !it.isInverse())
+            .collect(toCollection(() -> EnumSet.noneOf(Instrument.class)));
+
+    private final MarketTime clock;
+    private final Duration maxAge;
+
+    private volatile Snapshot snapshot;
+
+    public PricingSnapshot(MarketTime clock, @Value("${forex.quotes.maxAgeMillis:5000}") long maxAgeMillis) {
+        this(clock, Duration.ofMillis(maxAgeMillis));
+    }
+
+    PricingSnapshot(MarketTime clock, Duration maxAge) {
+        this.clock = clock;
+        this.maxAge = maxAge;
+    }
+
+    public Quote getQuote(Context context, String accountID, Instrument pair) throws RequestException {
+        LocalDateTime now = clock.now();
+
+        Snapshot current = snapshot;
+        if (current == null || current.isStale(now, maxAge, pair)) {
+            current = refresh(context, accountID, now, pair);
+        }
+
+        Price price = current.prices.get(pair);
+        if (price == null) {
+            throw new IllegalStateException("No price for " + pair + "!");
+        }
+
+        return new BrokerQuote(price);
+    }
+
+    /**
+     * Replaces the price for the instrument and its inverse, from a price stream.
+     */
+    public synchronized void update(Price price) {
+        Map<Instrument, Price> prices = new EnumMap<>(Instrument.class);
+        if (snapshot != null) {
+            prices.putAll(snapshot.prices);
+        }
+        put(prices, price);
+
+        snapshot = new Snapshot(clock.now(), prices);
+    }
+
+    private synchronized Snapshot refresh(Context context, String accountID, LocalDateTime now, Instrument pair) throws RequestException {
+        // Another trader may have refreshed while this one was waiting
+        Snapshot current = snapshot;
+        if (current != null && !current.isStale(now, maxAge, pair)) {
+            return current;
+        }
+
+        PricingGetResponse response = context.getPricing(new PricingGetRequest(accountID, BROKER_INSTRUMENTS));
+        if (response.getPrices().isEmpty()) {
+            throw new IllegalStateException("Prices were empty!");
+        }
+
+        Map<Instrument, Price> prices = new EnumMap<>(Instrument.class);
+        for (Price price : response.getPrices()) {
+            put(prices, price);
+        }
+        LOG.info("Current prices: {}", prices.values());
+
+        snapshot = new Snapshot(now, prices);
+
+        return snapshot;
+    }
+
+    private static void put(Map<Instrument, Price> prices, Price price) {
+        Instrument instrument = price.getInstrument();
+        Instrument opposite = instrument.getOpposite();
+
+        prices.put(instrument, price);
+        prices.put(opposite, new Price(opposite, invert(price.getCloseoutAsk()), invert(price.getCloseoutBid())));
+    }
+
+    private static final class Snapshot {
+        private final LocalDateTime time;
+        private final Map<Instrument, Price> prices;
+
+        Snapshot(LocalDateTime time, Map<Instrument, Price> prices) {
+            this.time = time;
+            this.prices = prices;
+        }
+
+        boolean isStale(LocalDateTime now, Duration maxAge, Instrument pair) {
+            return !prices.containsKey(pair) || !time.plus(maxAge).isAfter(now);
+        }
+    }
+}
@@ -2,11 +2,26 @@ package forex.broker;
 
 public class RequestException extends Exception {
 
+    private final boolean transientFailure;
+
     public RequestException(String message) {
         this(message, null);
     }
 
     public RequestException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    public RequestException(String message, Throwable cause, boolean transientFailure) {
         super(message, cause);
+
+        this.transientFailure = transientFailure;
+    }
+
+    /**
+     * @return whether the same request may succeed if it's retried, such as when the broker is unavailable or rate limiting
+     */
+    public boolean isTransient() {
+        return transientFailure;
     }
 }
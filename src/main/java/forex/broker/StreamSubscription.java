@@ -0,0 +1,7 @@
+package forex.broker;
+
+public interface StreamSubscription extends AutoCloseable {
+
+    @Override
+    void close();
+}
@@ -0,0 +1,19 @@
+package forex.broker;
+
+import forex.market.Instrument;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streams are consumed on their own thread and reconnect until the subscription is closed.
+ */
+public interface StreamingContext {
+
+    StreamSubscription prices(String accountID, Set<Instrument> instruments, Consumer<Price> listener);
+
+    /**
+     * The listener receives the id of each transaction on the account.
+     */
+    StreamSubscription transactions(String accountID, Consumer<String> listener);
+}
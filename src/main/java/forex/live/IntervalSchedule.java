@@ -0,0 +1,94 @@
+package forex.live;
+
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Fires on wall clock boundaries of the interval, shifted by the offset, so processing time doesn't push later
+ * intervals back. Boundaries missed because processing overran are skipped rather than run back to back, and how late
+ * each interval started is reported periodically.
+ */
+class IntervalSchedule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IntervalSchedule.class);
+
+    static final int INTERVALS_PER_REPORT = 60;
+
+    private final LongSupplier currentTimeMillis;
+    private final long intervalMillis;
+    private final long offsetMillis;
+
+    private long nextFiring = -1;
+    private long lastFiring = -1;
+
+    private int fired;
+    private long totalLatenessMillis;
+    private long maxLatenessMillis;
+    private long skipped;
+
+    IntervalSchedule(LongSupplier currentTimeMillis, long intervalMillis, long offsetMillis) {
+        long minute = MINUTES.toMillis(1);
+        Preconditions.checkArgument(intervalMillis > 0 && (minute % intervalMillis == 0 || intervalMillis % minute == 0),
+                "Interval must divide evenly into or by a minute");
+        Preconditions.checkArgument(offsetMillis >= 0 && offsetMillis < intervalMillis,
+                "Offset must be within the interval");
+
+        this.currentTimeMillis = currentTimeMillis;
+        this.intervalMillis = intervalMillis;
+        this.offsetMillis = offsetMillis;
+    }
+
+    /**
+     * Records the start of an interval, which is late by however long after its boundary it started.
+     */
+    void fired() {
+        if (nextFiring < 0) {
+            return;
+        }
+
+        long lateness = Math.max(currentTimeMillis.getAsLong() - nextFiring, 0);
+
+        fired++;
+        totalLatenessMillis += lateness;
+        maxLatenessMillis = Math.max(maxLatenessMillis, lateness);
+        lastFiring = nextFiring;
+
+        if (fired == INTERVALS_PER_REPORT) {
+            LOG.info("Started {} intervals an average of {} ms late, at most {} ms, and skipped {}",
+                    fired, totalLatenessMillis / fired, maxLatenessMillis, skipped);
+
+            fired = 0;
+            totalLatenessMillis = 0;
+            maxLatenessMillis = 0;
+            skipped = 0;
+        }
+    }
+
+    /**
+     * @return the millis to wait for the next boundary
+     */
+    long millisUntilNext() {
+        long now = currentTimeMillis.getAsLong();
+        long next = Math.floorDiv(now - offsetMillis, intervalMillis) * intervalMillis + intervalMillis + offsetMillis;
+
+        if (lastFiring >= 0) {
+            // Never fire twice for the same boundary, even if the wait ended early
+            next = Math.max(next, lastFiring + intervalMillis);
+
+            long missed = (next - lastFiring) / intervalMillis - 1;
+            if (missed > 0) {
+                LOG.warn("Processing overran the interval, skipping {} intervals", missed);
+                skipped += missed;
+            }
+        }
+
+        nextFiring = next;
+
+        return next - now;
+    }
+}
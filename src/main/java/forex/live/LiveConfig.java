@@ -3,10 +3,12 @@ package forex.live;
 import forex.broker.Context;
 import forex.broker.LiveTraders;
 import forex.live.oanda.OandaContext;
+import forex.market.AvailableDaysIndex;
 import forex.market.DBHistoryDataService;
 import forex.market.InstrumentCandleRepository;
 import forex.market.InstrumentHistoryService;
 import forex.market.MarketTime;
+import forex.market.RecentCandleCache;
 import forex.trader.ForexTrader;
 import forex.trader.Trader;
 import forex.trader.TraderConfiguration;
@@ -29,12 +31,16 @@ public class LiveConfig {
 
     @Bean
     Context context(OandaProperties properties) {
-        return OandaContext.create(properties.getApi().getEndpoint(), properties.getApi().getToken());
+        OandaProperties.Api api = properties.getApi();
+
+        return api.getStreamEndpoint() == null ? OandaContext.create(api.getEndpoint(), api.getToken()) :
+                OandaContext.create(api.getEndpoint(), api.getStreamEndpoint(), api.getToken());
     }
 
     @Bean
-    InstrumentHistoryService instrumentHistoryService(MarketTime clock, InstrumentCandleRepository repo) {
-        return new DBHistoryDataService(clock, repo);
+    InstrumentHistoryService instrumentHistoryService(MarketTime clock, InstrumentCandleRepository repo,
+                                                      RecentCandleCache recentCandles, AvailableDaysIndex availableDays) {
+        return new DBHistoryDataService(clock, repo, recentCandles, availableDays);
     }
 
     @Bean
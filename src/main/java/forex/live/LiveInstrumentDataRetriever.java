@@ -2,27 +2,36 @@ package forex.live;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Range;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import forex.broker.RequestException;
 import forex.market.DataRetriever;
+import forex.market.DataRetriever.ResponseHandler;
+import forex.market.Instrument;
 import forex.market.InstrumentCandle;
 import forex.market.InstrumentCandleService;
 import forex.market.InstrumentDataRetriever;
 import forex.market.MarketTime;
+import forex.market.TokenBucket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static forex.broker.Context.MAXIMUM_CANDLES_PER_RETRIEVAL;
 import static forex.market.CandleTimeFrame.ONE_MINUTE;
 import static java.util.Collections.emptySortedSet;
-import static java.util.stream.Collectors.toList;
 
 @Service
 public class LiveInstrumentDataRetriever implements InstrumentDataRetriever {
@@ -31,11 +40,53 @@ public class LiveInstrumentDataRetriever implements InstrumentDataRetriever {
     private final MarketTime clock;
     private final InstrumentCandleService service;
     private final DataRetriever<Range<LocalDateTime>, List<InstrumentCandle>> dataRetriever;
+    private final ResponseHandler<List<InstrumentCandle>> responseHandler;
+    private final ExecutorService rollups;
+    private final AtomicBoolean rollupQueued = new AtomicBoolean();
 
     public LiveInstrumentDataRetriever(MarketTime clock, InstrumentCandleService service) {
+        this(clock, service, (OandaProperties.Retrieval) null);
+    }
+
+    @Autowired
+    public LiveInstrumentDataRetriever(MarketTime clock, InstrumentCandleService service, OandaProperties properties) {
+        this(clock, service, properties.getRetrieval());
+    }
+
+    LiveInstrumentDataRetriever(MarketTime clock, InstrumentCandleService service, OandaProperties.Retrieval retrieval) {
+        this(clock, service, retrieval, Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("candle-rollup-%d").setDaemon(true).build()));
+    }
+
+    LiveInstrumentDataRetriever(MarketTime clock, InstrumentCandleService service, OandaProperties.Retrieval retrieval,
+                                ExecutorService rollups) {
         this.clock = clock;
         this.service = service;
-        this.dataRetriever =  new DataRetriever<>(clock, service::retrieveAndStoreOneMinuteCandles);
+        this.rollups = rollups;
+
+        if (retrieval == null) {
+            this.dataRetriever = new DataRetriever<>(clock, service::retrieveAndStoreOneMinuteCandles);
+            this.responseHandler = candles -> {
+            };
+        } else {
+            this.dataRetriever = rateLimitedRetriever(clock, service, retrieval);
+            this.responseHandler = service::storeOneMinuteCandles;
+        }
+    }
+
+    /**
+     * Ranges are retrieved concurrently while the previous ranges are stored. Each range takes a request per instrument.
+     */
+    private static DataRetriever<Range<LocalDateTime>, List<InstrumentCandle>> rateLimitedRetriever(
+            MarketTime clock, InstrumentCandleService service, OandaProperties.Retrieval retrieval) {
+
+        int requestsPerRange = (int) Arrays.stream(Instrument.values()).filter(it -> !it.isInverse()).count();
+
+        return new DataRetriever.Builder<Range<LocalDateTime>, List<InstrumentCandle>>(clock, service::retrieveOneMinuteCandles)
+                .withRateLimiter(new TokenBucket(clock, retrieval.getRequestsPerSecond()), requestsPerRange)
+                .withConcurrentRequests(retrieval.getConcurrentRequests())
+                .withRetries(retrieval.getMaxAttempts(), retrieval.getBackoffMillis())
+                .build();
     }
 
     @Override
@@ -45,10 +96,41 @@ public class LiveInstrumentDataRetriever implements InstrumentDataRetriever {
 
         SortedSet<Range<LocalDateTime>> ranges = determineRetrievalRanges();
 
-        List<InstrumentCandle> stored = dataRetriever.retrieve(ranges)
-                .stream().flatMap(Collection::stream).collect(toList());
+        AtomicInteger stored = new AtomicInteger();
+        dataRetriever.retrieve(ranges, candles -> {
+            responseHandler.handleResponse(candles);
+            stored.addAndGet(candles.size());
+        });
+
+        LOG.info("Retrieved and stored {} one minute instrument candles for {} ranges in {}", stored.get(), ranges.size(), timer);
+
+        rollupCandles();
+    }
+
+    /**
+     * Rolls up in the background so traders don't wait on it, which matters for the first roll up that backfills every
+     * larger time frame. Each roll up continues from the latest stored candles, so a roll up already queued covers any
+     * candles stored since.
+     */
+    private void rollupCandles() {
+        if (!rollupQueued.compareAndSet(false, true)) {
+            return;
+        }
+
+        rollups.execute(() -> {
+            rollupQueued.set(false);
+
+            try {
+                service.rollupCandles();
+            } catch (RuntimeException e) {
+                LOG.error("Unable to roll up candles!", e);
+            }
+        });
+    }
 
-        LOG.info("Retrieved and stored {} one minute instrument candles for {} ranges in {}", stored.size(), ranges.size(), timer);
+    @PreDestroy
+    void shutdown() {
+        rollups.shutdownNow();
     }
 
     SortedSet<Range<LocalDateTime>> determineRetrievalRanges() {
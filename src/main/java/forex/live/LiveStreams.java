@@ -0,0 +1,82 @@
+package forex.live;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import forex.broker.Broker;
+import forex.broker.LiveTraders;
+import forex.broker.PricingSnapshot;
+import forex.broker.StreamSubscription;
+import forex.trader.ForexTrader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static forex.broker.PricingSnapshot.BROKER_INSTRUMENTS;
+
+/**
+ * Streams prices into the pricing snapshot, and wakes a trader as soon as a transaction is streamed for its account
+ * so fills are acted on without waiting for the next interval. The transactions of a single order arrive together,
+ * so wake ups for an account that is already waiting are dropped.
+ */
+@Service
+class LiveStreams {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LiveStreams.class);
+
+    private final Broker broker;
+    private final LiveTraders traders;
+    private final PricingSnapshot pricing;
+    private final boolean enabled;
+
+    private final List<StreamSubscription> subscriptions = new ArrayList<>();
+    private final Set<String> waking = ConcurrentHashMap.newKeySet();
+    private final ExecutorService wakeups = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("trader-wakeup-%d").setDaemon(true).build());
+
+    public LiveStreams(Broker broker, LiveTraders traders, PricingSnapshot pricing, OandaProperties properties) {
+        this.broker = broker;
+        this.traders = traders;
+        this.pricing = pricing;
+        this.enabled = properties.getApi().getStreamEndpoint() != null;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled || traders.getTraders().isEmpty()) {
+            LOG.info("Streaming is disabled, prices and transactions will only be polled.");
+            return;
+        }
+
+        ForexTrader first = traders.getTraders().get(0);
+        subscriptions.add(first.getContext().streamPrices(first.getAccountNumber(), BROKER_INSTRUMENTS, pricing::update));
+
+        for (ForexTrader trader : traders.getTraders()) {
+            String accountID = trader.getAccountNumber();
+
+            subscriptions.add(trader.getContext().streamTransactions(accountID, transactionID -> wake(accountID)));
+        }
+    }
+
+    void wake(String accountID) {
+        if (waking.add(accountID)) {
+            wakeups.execute(() -> {
+                waking.remove(accountID);
+                broker.processUpdates(accountID);
+            });
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        subscriptions.forEach(StreamSubscription::close);
+        wakeups.shutdownNow();
+    }
+}
@@ -2,16 +2,22 @@ package forex.live;
 
 import forex.broker.Broker;
 import forex.market.BaseWatcher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
 
 @Service
 class LiveWatcher extends BaseWatcher<SystemTime, Broker> {
 
-    public LiveWatcher(SystemTime marketTime, Broker broker) {
+    private final IntervalSchedule schedule;
+
+    public LiveWatcher(SystemTime marketTime, Broker broker,
+                       @Value("${forex.watcher.intervalMillis:60000}") long intervalMillis,
+                       @Value("${forex.watcher.offsetMillis:500}") long offsetMillis) {
         super(marketTime, broker);
+
+        this.schedule = new IntervalSchedule(System::currentTimeMillis, intervalMillis, offsetMillis);
     }
 
     @Override
@@ -19,9 +25,16 @@ class LiveWatcher extends BaseWatcher<SystemTime, Broker> {
         return true;
     }
 
+    @Override
+    protected void nextMinute() throws Exception {
+        schedule.fired();
+
+        super.nextMinute();
+    }
+
     @Override
     public long millisUntilNextInterval() {
-        return TimeUnit.MINUTES.toMillis(1);
+        return schedule.millisUntilNext();
     }
 
     @Override
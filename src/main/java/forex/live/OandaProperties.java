@@ -11,6 +11,7 @@ import java.util.List;
 public class OandaProperties {
     public static class Api {
         private String endpoint;
+        private String streamEndpoint;
         private String token;
 
         public String getEndpoint() {
@@ -21,6 +22,17 @@ public class OandaProperties {
             this.endpoint = endpoint;
         }
 
+        /**
+         * Prices and transactions are streamed from here when set, otherwise they are only polled.
+         */
+        public String getStreamEndpoint() {
+            return streamEndpoint;
+        }
+
+        public void setStreamEndpoint(String streamEndpoint) {
+            this.streamEndpoint = streamEndpoint;
+        }
+
         public String getToken() {
             return token;
         }
@@ -30,7 +42,50 @@ public class OandaProperties {
         }
     }
 
+    /**
+     * Limits for catching up on candles, which should stay under the broker's request rate limit.
+     */
+    public static class Retrieval {
+        private double requestsPerSecond;
+        private int concurrentRequests = 1;
+        private int maxAttempts = 1;
+        private long backoffMillis;
+
+        public double getRequestsPerSecond() {
+            return requestsPerSecond;
+        }
+
+        public void setRequestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+
+        public int getConcurrentRequests() {
+            return concurrentRequests;
+        }
+
+        public void setConcurrentRequests(int concurrentRequests) {
+            this.concurrentRequests = concurrentRequests;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getBackoffMillis() {
+            return backoffMillis;
+        }
+
+        public void setBackoffMillis(long backoffMillis) {
+            this.backoffMillis = backoffMillis;
+        }
+    }
+
     private Api api;
+    private Retrieval retrieval;
     private List<TraderConfiguration> traders;
 
     public Api getApi() {
@@ -41,6 +96,14 @@ public class OandaProperties {
         this.api = api;
     }
 
+    public Retrieval getRetrieval() {
+        return retrieval;
+    }
+
+    public void setRetrieval(Retrieval retrieval) {
+        this.retrieval = retrieval;
+    }
+
     public List<TraderConfiguration> getTraders() {
         return traders;
     }
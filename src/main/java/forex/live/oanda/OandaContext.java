@@ -17,12 +17,14 @@ import forex.broker.OrderCreateResponse;
 import forex.broker.PricingContext;
 import forex.broker.PricingGetRequest;
 import forex.broker.PricingGetResponse;
+import forex.broker.StreamingContext;
 import forex.broker.TradeCloseRequest;
 import forex.broker.TradeCloseResponse;
 import forex.broker.TradeContext;
 import forex.broker.TradeListRequest;
 import forex.broker.TradeListResponse;
 
+import javax.annotation.Nullable;
 import java.util.function.Function;
 
 public class OandaContext extends BaseContext {
@@ -32,8 +34,15 @@ public class OandaContext extends BaseContext {
         RESPONSE send(REQUEST request) throws RequestException, ExecuteException;
     }
 
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long STREAM_RECONNECT_MILLIS = 5000;
+
     public static Context create(String endpoint, String token) {
-        return new OandaContext(endpoint, token);
+        return new OandaContext(endpoint, token, null);
+    }
+
+    public static Context create(String endpoint, String streamEndpoint, String token) {
+        return new OandaContext(endpoint, token, new OandaStreaming(streamEndpoint, token, STREAM_RECONNECT_MILLIS));
     }
 
     private class OandaPricing implements PricingContext {
@@ -116,9 +125,12 @@ public class OandaContext extends BaseContext {
     }
 
     private final com.oanda.v20.Context ctx;
+    @Nullable
+    private final StreamingContext streaming;
 
-    private OandaContext(String endpoint, String token) {
+    private OandaContext(String endpoint, String token, @Nullable StreamingContext streaming) {
         this.ctx = new com.oanda.v20.Context(endpoint, token);
+        this.streaming = streaming;
     }
 
     @Override
@@ -146,6 +158,11 @@ public class OandaContext extends BaseContext {
         return new OandaInstrument(ctx.instrument);
     }
 
+    @Override
+    protected StreamingContext streaming() {
+        return streaming == null ? super.streaming() : streaming;
+    }
+
     private <REQUEST, OANDA_REQUEST, RESPONSE, OANDA_RESPONSE> RESPONSE processRequest(REQUEST request,
                                                                                        Function<REQUEST, OANDA_REQUEST> requestConverter,
                                                                                        OandaApi<OANDA_REQUEST, OANDA_RESPONSE> apiCall,
@@ -157,9 +174,12 @@ public class OandaContext extends BaseContext {
 
             return responseConverter.apply(oandaResponse);
         } catch (RequestException e) {
-            throw new forex.broker.RequestException(e.getErrorMessage(), e);
+            int status = e.getStatus();
+
+            throw new forex.broker.RequestException(e.getErrorMessage(), e, status == TOO_MANY_REQUESTS || status >= 500);
         } catch (ExecuteException e) {
-            throw new forex.broker.RequestException(e.getMessage(), e);
+            // The request couldn't be sent or the response read
+            throw new forex.broker.RequestException(e.getMessage(), e, true);
         }
     }
 }
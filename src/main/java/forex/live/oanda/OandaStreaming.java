@@ -0,0 +1,159 @@
+package forex.live.oanda;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import forex.broker.Price;
+import forex.broker.StreamSubscription;
+import forex.broker.StreamingContext;
+import forex.market.Instrument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The v20 library has no support for the streaming endpoints, so each stream is read as lines of JSON over its own
+ * connection. Heartbeats are dropped, and a dropped or silent connection is reopened after a delay.
+ */
+class OandaStreaming implements StreamingContext {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OandaStreaming.class);
+
+    private static final Gson gson = new Gson();
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    // Heartbeats arrive about every 5 seconds, so missing several means the connection is dead
+    private static final int READ_TIMEOUT_MILLIS = 20_000;
+
+    private final String endpoint;
+    private final String token;
+    private final long reconnectMillis;
+
+    OandaStreaming(String endpoint, String token, long reconnectMillis) {
+        this.endpoint = endpoint;
+        this.token = token;
+        this.reconnectMillis = reconnectMillis;
+    }
+
+    @Override
+    public StreamSubscription prices(String accountID, Set<Instrument> instruments, Consumer<Price> listener) {
+        String symbols = instruments.stream()
+                .map(Instrument::getBrokerInstrument)
+                .map(Instrument::getSymbol)
+                .distinct()
+                .collect(joining(","));
+
+        return subscribe("prices-" + accountID, "/v3/accounts/" + accountID + "/pricing/stream?instruments=" + symbols, message -> {
+            com.oanda.v20.pricing.Price oandaPrice = gson.fromJson(message, com.oanda.v20.pricing.Price.class);
+            Instrument brokerInstrument = CommonConverter.convert(oandaPrice.getInstrument());
+
+            for (Instrument instrument : instruments) {
+                if (instrument.getBrokerInstrument() == brokerInstrument) {
+                    listener.accept(PricingConverter.convert(instrument, oandaPrice));
+                }
+            }
+        });
+    }
+
+    @Override
+    public StreamSubscription transactions(String accountID, Consumer<String> listener) {
+        return subscribe("transactions-" + accountID, "/v3/accounts/" + accountID + "/transactions/stream",
+                message -> listener.accept(message.get("id").getAsString()));
+    }
+
+    private StreamSubscription subscribe(String name, String path, Consumer<JsonObject> messageHandler) {
+        Stream stream = new Stream(name, path, messageHandler);
+        stream.thread.start();
+
+        return stream;
+    }
+
+    private class Stream implements Runnable, StreamSubscription {
+        private final String name;
+        private final String path;
+        private final Consumer<JsonObject> messageHandler;
+        private final Thread thread;
+
+        private volatile boolean closed;
+        private volatile HttpURLConnection connection;
+
+        Stream(String name, String path, Consumer<JsonObject> messageHandler) {
+            this.name = name;
+            this.path = path;
+            this.messageHandler = messageHandler;
+            this.thread = new Thread(this, "stream-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    read();
+                } catch (IOException e) {
+                    if (!closed) {
+                        LOG.warn("Stream {} disconnected, reconnecting in {} ms", name, reconnectMillis, e);
+                    }
+                }
+
+                if (!closed) {
+                    try {
+                        Thread.sleep(reconnectMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void read() throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + path).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Authorization", "Bearer " + token);
+            connection.setRequestProperty("Accept-Datetime-Format", "RFC3339");
+            this.connection = connection;
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8))) {
+                String line;
+                while (!closed && (line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+
+                    try {
+                        JsonObject message = new JsonParser().parse(line).getAsJsonObject();
+                        if (!(message.has("type") && "HEARTBEAT".equals(message.get("type").getAsString()))) {
+                            messageHandler.accept(message);
+                        }
+                    } catch (Exception e) {
+                        LOG.error("Unable to handle stream {} message: {}", name, line, e);
+                    }
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+
+            HttpURLConnection connection = this.connection;
+            if (connection != null) {
+                connection.disconnect();
+            }
+            thread.interrupt();
+        }
+    }
+}
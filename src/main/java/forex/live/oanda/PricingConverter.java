@@ -38,7 +38,7 @@ class PricingConverter {
         return new PricingGetResponse(prices);
     }
 
-    private static Price convert(Instrument requestedInstrument, com.oanda.v20.pricing.Price oandaPrice) {
+    static Price convert(Instrument requestedInstrument, com.oanda.v20.pricing.Price oandaPrice) {
         Instrument responseInstrument = CommonConverter.convert(oandaPrice.getInstrument());
         verifyResponseInstrument(requestedInstrument, responseInstrument);
 
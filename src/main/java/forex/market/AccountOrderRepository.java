@@ -0,0 +1,15 @@
+package forex.market;
+
+import forex.broker.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * Queries across every order type, which are joined to their subclass tables in a single statement.
+ */
+public interface AccountOrderRepository extends JpaRepository<Order, Integer> {
+
+    List<Order> findByAccountIdAndFilledTimeIsNullAndCanceledTimeIsNull(String accountId);
+
+}
@@ -4,16 +4,22 @@ import com.google.common.base.Preconditions;
 import forex.broker.LimitOrder;
 import forex.broker.MarketOrder;
 import forex.broker.Order;
+import forex.broker.OrderCancelReason;
 import forex.broker.Orders;
 import forex.broker.StopLossOrder;
 import forex.broker.TakeProfitOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
@@ -28,15 +34,24 @@ class AccountOrderServiceImpl implements AccountOrderService {
     private final LimitOrderRepository limitOrderRepo;
     private final StopLossOrderRepository stopLossOrderRepo;
     private final TakeProfitOrderRepository takeProfitOrderRepo;
+    private final AccountOrderRepository accountOrderRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
 
     AccountOrderServiceImpl(MarketOrderRepository marketOrderRepo,
                             LimitOrderRepository limitOrderRepo,
                             StopLossOrderRepository stopLossOrderRepo,
-                            TakeProfitOrderRepository takeProfitOrderRepo) {
+                            TakeProfitOrderRepository takeProfitOrderRepo,
+                            AccountOrderRepository accountOrderRepo,
+                            JdbcTemplate jdbcTemplate,
+                            EntityManager entityManager) {
         this.marketOrderRepo = marketOrderRepo;
         this.limitOrderRepo = limitOrderRepo;
         this.stopLossOrderRepo = stopLossOrderRepo;
         this.takeProfitOrderRepo = takeProfitOrderRepo;
+        this.accountOrderRepo = accountOrderRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
     }
 
     @Override
@@ -111,10 +126,22 @@ class AccountOrderServiceImpl implements AccountOrderService {
 
     @Override
     public Orders findPendingOrders(String accountId) {
-        Set<MarketOrder> marketOrders = marketOrderRepo.findByAccountIdEqualsAndFilledTimeIsNullAndCanceledTimeIsNull(accountId);
-        Set<LimitOrder> limitOrders = limitOrderRepo.findByAccountIdEqualsAndFilledTimeIsNullAndCanceledTimeIsNull(accountId);
-        Set<TakeProfitOrder> takeProfitOrders = takeProfitOrderRepo.findByAccountIdEqualsAndFilledTimeIsNullAndCanceledTimeIsNull(accountId);
-        Set<StopLossOrder> stopLossOrders = stopLossOrderRepo.findByAccountIdEqualsAndFilledTimeIsNullAndCanceledTimeIsNull(accountId);
+        List<MarketOrder> marketOrders = new ArrayList<>();
+        List<LimitOrder> limitOrders = new ArrayList<>();
+        List<TakeProfitOrder> takeProfitOrders = new ArrayList<>();
+        List<StopLossOrder> stopLossOrders = new ArrayList<>();
+
+        for (Order order : accountOrderRepo.findByAccountIdAndFilledTimeIsNullAndCanceledTimeIsNull(accountId)) {
+            if (order instanceof MarketOrder) {
+                marketOrders.add((MarketOrder) order);
+            } else if (order instanceof LimitOrder) {
+                limitOrders.add((LimitOrder) order);
+            } else if (order instanceof TakeProfitOrder) {
+                takeProfitOrders.add((TakeProfitOrder) order);
+            } else if (order instanceof StopLossOrder) {
+                stopLossOrders.add((StopLossOrder) order);
+            }
+        }
 
         return new Orders(marketOrders, limitOrders, takeProfitOrders, stopLossOrders);
     }
@@ -169,18 +196,56 @@ class AccountOrderServiceImpl implements AccountOrderService {
         Preconditions.checkNotNull(orderId);
         Preconditions.checkNotNull(accountId);
 
+        if (overwriteExisting) {
+            // Orders are overwritten when they're filled or canceled, which only changes the shared columns, so an
+            // existing order is updated in place without loading it
+            Integer existingId = existingId(orderId, accountId);
+            if (existingId == null) {
+                return repo.save(order);
+            }
+
+            updateExisting(existingId, order);
+            order.setId(existingId);
+
+            return order;
+        }
+
         ORDER existing = repo.findOneByOrderIdAndAccountId(orderId, accountId);
 
         if (existing != null) {
-            if (overwriteExisting) {
-                order.setId(existing.getId());
-            } else {
-                LOG.warn("Found existing order {}, not overwriting!", existing);
+            LOG.warn("Found existing order {}, not overwriting!", existing);
 
-                return existing;
-            }
+            return existing;
         }
 
         return repo.save(order);
     }
+
+    @Nullable
+    private Integer existingId(String orderId, String accountId) {
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM account_order WHERE order_id = ? AND account_id = ?",
+                Integer.class, orderId, accountId);
+
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private void updateExisting(Integer id, Order order) {
+        OrderCancelReason canceledReason = order.getCanceledReason();
+
+        jdbcTemplate.update("UPDATE account_order " +
+                        "SET create_time = ?, canceled_time = ?, filled_time = ?, canceled_reason = ? WHERE id = ?",
+                timestamp(order.getCreateTime()), timestamp(order.getCanceledTime()), timestamp(order.getFilledTime()),
+                canceledReason == null ? null : canceledReason.ordinal(), id);
+
+        // The update bypassed the persistence context, so a copy loaded earlier in the transaction is now stale.
+        // Without one this is an unloaded proxy, so nothing is read.
+        Order loaded = entityManager.getReference(order.getClass(), id);
+        if (loaded != order) {
+            entityManager.detach(loaded);
+        }
+    }
+
+    private static Timestamp timestamp(@Nullable LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
 }
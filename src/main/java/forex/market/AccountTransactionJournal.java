@@ -0,0 +1,273 @@
+package forex.market;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import forex.broker.LimitOrderTransaction;
+import forex.broker.MarketOrderTransaction;
+import forex.broker.OrderCancelTransaction;
+import forex.broker.OrderFillTransaction;
+import forex.broker.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Appends transactions to a queue and writes them in JDBC batches from a background thread, so placing an order doesn't
+ * wait on the database. Transactions never change, so any already queued or in the database are ignored, which also
+ * makes retrying a failed batch safe. A batch that keeps failing is written one transaction at a time, and any
+ * transaction that still fails is logged and dropped so it doesn't hold up the rest.
+ */
+class AccountTransactionJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccountTransactionJournal.class);
+
+    private static final int RECENT_TRANSACTIONS = 10_000;
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseProduct database;
+    private final int batchSize;
+
+    private final BlockingQueue<Transaction> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentMap<String, Boolean> recent = CacheBuilder.newBuilder()
+            .maximumSize(RECENT_TRANSACTIONS)
+            .<String, Boolean>build()
+            .asMap();
+    // Failed attempts by transaction, only used while flushing
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("transaction-journal-%d").setDaemon(true).build());
+
+    AccountTransactionJournal(JdbcTemplate jdbcTemplate, int batchSize, long flushMillis) {
+        Preconditions.checkArgument(batchSize > 0, "The batch size must be positive");
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.database = new DatabaseProduct(jdbcTemplate);
+        this.batchSize = batchSize;
+
+        writer.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, MILLISECONDS);
+    }
+
+    /**
+     * @return true if the transaction was queued, false if it was already journaled
+     */
+    boolean append(Transaction transaction) {
+        Preconditions.checkNotNull(transaction.getTransactionId());
+        Preconditions.checkNotNull(transaction.getAccountId());
+
+        if (recent.putIfAbsent(key(transaction), Boolean.TRUE) != null) {
+            LOG.warn("Found existing transaction {}, not overwriting!", transaction);
+            return false;
+        }
+
+        queue.add(transaction);
+        return true;
+    }
+
+    /**
+     * Writes all queued transactions.
+     *
+     * @return the number of transactions written
+     */
+    synchronized int flush() {
+        List<Transaction> transactions = new ArrayList<>();
+        queue.drainTo(transactions);
+
+        int written = 0;
+        List<List<Transaction>> batches = Lists.partition(transactions, batchSize);
+        for (int i = 0; i < batches.size(); i++) {
+            List<Transaction> batch = batches.get(i);
+            try {
+                write(batch);
+                written += batch.size();
+                batch.forEach(it -> attempts.remove(key(it)));
+            } catch (RuntimeException e) {
+                if (!retriesExhausted(batch)) {
+                    LOG.error("Unable to write {} transactions, they will be retried", batch.size(), e);
+                    queue.addAll(transactions.subList(i * batchSize, transactions.size()));
+                    break;
+                }
+
+                LOG.error("Unable to write {} transactions after {} attempts, writing them one at a time",
+                        batch.size(), MAX_BATCH_ATTEMPTS, e);
+                written += writeEach(batch);
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Counts a failed attempt for each transaction in the batch.
+     *
+     * @return true if any of them has failed too many times to keep retrying the batch
+     */
+    private boolean retriesExhausted(List<Transaction> batch) {
+        boolean exhausted = false;
+        for (Transaction transaction : batch) {
+            exhausted |= attempts.merge(key(transaction), 1, Integer::sum) >= MAX_BATCH_ATTEMPTS;
+        }
+        return exhausted;
+    }
+
+    /**
+     * Writes the transactions one at a time, dropping any that fail.
+     *
+     * @return the number of transactions written
+     */
+    private int writeEach(List<Transaction> batch) {
+        int written = 0;
+        for (Transaction transaction : batch) {
+            String key = key(transaction);
+            attempts.remove(key);
+
+            try {
+                write(Collections.singletonList(transaction));
+                written++;
+            } catch (RuntimeException e) {
+                // No longer journaled, so it can be appended again
+                recent.remove(key);
+                LOG.error("Dropping transaction that could not be written: {}", transaction, e);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Stops the background writes and writes anything still queued.
+     */
+    void close() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(30, SECONDS)) {
+            LOG.error("Transactions were still being written at shutdown!");
+        }
+
+        flush();
+
+        if (!queue.isEmpty()) {
+            LOG.error("Unable to write {} transactions at shutdown!", queue.size());
+        }
+    }
+
+    private void write(List<Transaction> batch) {
+        Stopwatch timer = Stopwatch.createStarted();
+
+        jdbcTemplate.batchUpdate(insertIfAbsent("account_transaction", "transaction_id, account_id, time",
+                "transaction_id, account_id"), rows(batch, it ->
+                new Object[]{it.getTransactionId(), it.getAccountId(), Timestamp.valueOf(it.getTime())}));
+
+        Map<String, Integer> ids = ids(batch);
+        Map<Class<?>, List<Transaction>> byType = batch.stream()
+                .collect(groupingBy(it -> it.getClass(), LinkedHashMap::new, toList()));
+
+        for (Map.Entry<Class<?>, List<Transaction>> entry : byType.entrySet()) {
+            Class<?> type = entry.getKey();
+            List<Transaction> transactions = entry.getValue();
+            Function<Transaction, Integer> id = it -> {
+                Integer transactionId = ids.get(key(it));
+                if (transactionId == null) {
+                    throw new IllegalStateException("Transaction was not stored: " + it);
+                }
+                return transactionId;
+            };
+
+            if (type == MarketOrderTransaction.class) {
+                jdbcTemplate.batchUpdate(insertIfAbsent("account_transaction_market_order", "id, instrument, units", "id"),
+                        rows(transactions, it -> {
+                            MarketOrderTransaction order = (MarketOrderTransaction) it;
+                            return new Object[]{id.apply(it), order.getInstrument().ordinal(), order.getUnits()};
+                        }));
+            } else if (type == LimitOrderTransaction.class) {
+                jdbcTemplate.batchUpdate(insertIfAbsent("account_transaction_limit_order", "id, instrument, units, price", "id"),
+                        rows(transactions, it -> {
+                            LimitOrderTransaction order = (LimitOrderTransaction) it;
+                            return new Object[]{id.apply(it), order.getInstrument().ordinal(), order.getUnits(), order.getPrice()};
+                        }));
+            } else if (type == OrderFillTransaction.class) {
+                jdbcTemplate.batchUpdate(insertIfAbsent("account_transaction_order_fill", "id, order_id", "id"),
+                        rows(transactions, it -> new Object[]{id.apply(it), ((OrderFillTransaction) it).getOrderId()}));
+            } else if (type == OrderCancelTransaction.class) {
+                jdbcTemplate.batchUpdate(insertIfAbsent("account_transaction_order_cancel", "id, order_id, reason, request_id", "id"),
+                        rows(transactions, it -> {
+                            OrderCancelTransaction cancel = (OrderCancelTransaction) it;
+                            return new Object[]{id.apply(it), cancel.getOrderId(), cancel.getReason().ordinal(), cancel.getRequestId()};
+                        }));
+            } else {
+                throw new IllegalArgumentException("Unsupported transaction type: " + type);
+            }
+        }
+
+        LOG.info("Journaled {} transactions in {}", batch.size(), timer);
+    }
+
+    /**
+     * Looks up the generated ids for the transactions, with one query per account.
+     */
+    private Map<String, Integer> ids(List<Transaction> batch) {
+        Map<String, Integer> ids = new HashMap<>();
+
+        Map<String, List<Transaction>> byAccount = batch.stream().collect(groupingBy(Transaction::getAccountId));
+        for (Map.Entry<String, List<Transaction>> entry : byAccount.entrySet()) {
+            String accountId = entry.getKey();
+            List<Transaction> transactions = entry.getValue();
+
+            List<Object> parameters = new ArrayList<>();
+            parameters.add(accountId);
+            transactions.forEach(it -> parameters.add(it.getTransactionId()));
+
+            jdbcTemplate.query("SELECT id, transaction_id FROM account_transaction WHERE account_id = ? AND transaction_id IN (" +
+                    String.join(", ", Collections.nCopies(transactions.size(), "?")) + ")", parameters.toArray(), rs -> {
+                ids.put(key(accountId, rs.getString("transaction_id")), rs.getInt("id"));
+            });
+        }
+
+        return ids;
+    }
+
+    private static List<Object[]> rows(List<Transaction> transactions, Function<Transaction, Object[]> row) {
+        List<Object[]> rows = new ArrayList<>(transactions.size());
+        transactions.forEach(it -> rows.add(row.apply(it)));
+        return rows;
+    }
+
+    private String insertIfAbsent(String table, String columns, String keyColumns) {
+        String values = String.join(", ", Collections.nCopies(columns.split(",").length, "?"));
+
+        if (database.isMysql()) {
+            // Unlike INSERT IGNORE, only duplicates are ignored, so any other failure fails the batch
+            return "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ") ON DUPLICATE KEY UPDATE id = id";
+        }
+
+        return "MERGE INTO " + table + " (" + columns + ") KEY (" + keyColumns + ") VALUES (" + values + ")";
+    }
+
+    private static String key(Transaction transaction) {
+        return key(transaction.getAccountId(), transaction.getTransactionId());
+    }
+
+    private static String key(String accountId, String transactionId) {
+        return accountId + '/' + transactionId;
+    }
+}
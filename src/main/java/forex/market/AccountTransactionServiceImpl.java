@@ -8,8 +8,11 @@ import forex.broker.OrderFillTransaction;
 import forex.broker.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import javax.transaction.Transactional;
 
 @Transactional
@@ -22,15 +25,28 @@ class AccountTransactionServiceImpl implements AccountTransactionService {
     private final LimitOrderTransactionRepository limitOrderRepo;
     private final OrderFillTransactionRepository orderFillRepo;
     private final OrderCancelTransactionRepository orderCancelRepo;
+    private final AccountTransactionJournal journal;
 
     AccountTransactionServiceImpl(MarketOrderTransactionRepository marketOrderRepo,
                                   LimitOrderTransactionRepository limitOrderRepo,
                                   OrderFillTransactionRepository orderFillRepo,
-                                  OrderCancelTransactionRepository orderCancelRepo) {
+                                  OrderCancelTransactionRepository orderCancelRepo,
+                                  JdbcTemplate jdbcTemplate,
+                                  @Value("${forex.transactions.journal:false}") boolean journal,
+                                  @Value("${forex.transactions.batchSize:500}") int batchSize,
+                                  @Value("${forex.transactions.flushMillis:1000}") long flushMillis) {
         this.marketOrderRepo = marketOrderRepo;
         this.limitOrderRepo = limitOrderRepo;
         this.orderFillRepo = orderFillRepo;
         this.orderCancelRepo = orderCancelRepo;
+        this.journal = journal ? new AccountTransactionJournal(jdbcTemplate, batchSize, flushMillis) : null;
+    }
+
+    @PreDestroy
+    void flush() throws InterruptedException {
+        if (journal != null) {
+            journal.close();
+        }
     }
 
     @Override
@@ -78,6 +94,12 @@ class AccountTransactionServiceImpl implements AccountTransactionService {
         Preconditions.checkNotNull(transactionId);
         Preconditions.checkNotNull(accountId);
 
+        if (journal != null && !overwriteExisting) {
+            journal.append(order);
+
+            return order;
+        }
+
         T existing = repo.findOneByTransactionIdAndAccountId(transactionId, accountId);
 
         if (existing != null) {
@@ -0,0 +1,46 @@
+package forex.market;
+
+import com.google.common.base.Preconditions;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The days of a year that have candles, one bit per day of the year.
+ */
+public final class AvailableDays {
+
+    private final int year;
+    private final BitSet days = new BitSet(366);
+
+    public AvailableDays(int year) {
+        this.year = year;
+    }
+
+    public static AvailableDays of(int year, Collection<LocalDate> days) {
+        AvailableDays availableDays = new AvailableDays(year);
+        days.forEach(availableDays::add);
+        return availableDays;
+    }
+
+    public void add(LocalDate day) {
+        Preconditions.checkArgument(day.getYear() == year, "%s is not in %s", day, year);
+
+        days.set(day.getDayOfYear() - 1);
+    }
+
+    public boolean contains(LocalDate day) {
+        return day.getYear() == year && days.get(day.getDayOfYear() - 1);
+    }
+
+    public NavigableSet<LocalDate> toSet() {
+        NavigableSet<LocalDate> result = new TreeSet<>();
+        for (int day = days.nextSetBit(0); day >= 0; day = days.nextSetBit(day + 1)) {
+            result.add(LocalDate.ofYearDay(year, day + 1));
+        }
+        return result;
+    }
+}
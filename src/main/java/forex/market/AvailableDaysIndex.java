@@ -0,0 +1,57 @@
+package forex.market;
+
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static forex.broker.CandlestickGranularity.M1;
+
+/**
+ * Days with one minute candles by instrument and year. A year is loaded from the database the first time it's asked
+ * for, then kept current by the candles as they are stored.
+ */
+@Service
+public class AvailableDaysIndex {
+
+    private final InstrumentCandleRepository repo;
+    private final Map<Instrument, Map<Integer, AvailableDays>> days = new EnumMap<>(Instrument.class);
+
+    public AvailableDaysIndex(InstrumentCandleRepository repo) {
+        this.repo = repo;
+    }
+
+    public synchronized void stored(List<InstrumentCandle> candles) {
+        for (InstrumentCandle candle : candles) {
+            InstrumentCandleType id = candle.getId();
+            if (id.getGranularity() != M1) {
+                continue;
+            }
+
+            LocalDate day = id.getTime().toLocalDate();
+
+            Map<Integer, AvailableDays> years = days.get(id.getInstrument());
+            AvailableDays year = years == null ? null : years.get(day.getYear());
+            if (year != null) {
+                year.add(day);
+            }
+        }
+    }
+
+    public synchronized boolean isAvailable(Instrument brokerInstrument, LocalDate day) {
+        return days(brokerInstrument, day.getYear()).contains(day);
+    }
+
+    public synchronized Set<LocalDate> getAvailableDays(Instrument brokerInstrument, int year) {
+        return days(brokerInstrument, year).toSet();
+    }
+
+    private AvailableDays days(Instrument brokerInstrument, int year) {
+        return days.computeIfAbsent(brokerInstrument, it -> new HashMap<>())
+                .computeIfAbsent(year, it -> AvailableDays.of(year, repo.findAvailableDays(brokerInstrument, year)));
+    }
+}
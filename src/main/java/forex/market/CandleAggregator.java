@@ -0,0 +1,59 @@
+package forex.market;
+
+import java.time.LocalDateTime;
+
+import static forex.market.CandleSeries.epochMinute;
+import static forex.market.CandleSeries.fromEpochMinute;
+
+/**
+ * Aggregates candles added in ascending time order into a single time frame, only calculating candle boundaries when a
+ * candle is added past the end of the current one.
+ */
+final class CandleAggregator {
+
+    private final CandleTimeFrame timeFrame;
+    private final CandleSeries.Builder candles = CandleSeries.builder();
+
+    private boolean hasCandle;
+    private long start;
+    private long end;
+    private long open;
+    private long high;
+    private long low;
+    private long close;
+
+    CandleAggregator(CandleTimeFrame timeFrame) {
+        this.timeFrame = timeFrame;
+    }
+
+    void add(long epochMinute, long o, long h, long l, long c) {
+        if (!hasCandle || epochMinute < start || epochMinute >= end) {
+            flush();
+
+            LocalDateTime candleStart = timeFrame.calculateStart(fromEpochMinute(epochMinute));
+            start = epochMinute(candleStart);
+            end = epochMinute(timeFrame.nextCandle(candleStart));
+            hasCandle = true;
+            open = o;
+            high = h;
+            low = l;
+        } else {
+            high = Math.max(high, h);
+            low = Math.min(low, l);
+        }
+        close = c;
+    }
+
+    CandleSeries build() {
+        flush();
+        return candles.build();
+    }
+
+    // Same rules as CandlestickData.aggregate, the open and close also bound the high and low
+    private void flush() {
+        if (hasCandle) {
+            candles.add(start, open, Math.max(high, Math.max(open, close)), Math.min(low, Math.min(open, close)), close);
+            hasCandle = false;
+        }
+    }
+}
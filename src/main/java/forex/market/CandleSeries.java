@@ -0,0 +1,678 @@
+package forex.market;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import forex.broker.CandlestickData;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static forex.broker.Quote.invert;
+
+/**
+ * Immutable, time ordered candles stored as parallel primitive arrays. Times are stored as epoch minutes of the
+ * local market time (see {@link #epochMinute(LocalDateTime)}), so a year of one minute candles is five long arrays
+ * rather than a tree of boxed keys and values.
+ * <p>
+ * Slicing with {@link #subSeries(LocalDateTime, boolean, LocalDateTime, boolean)} uses binary searches and shares
+ * the underlying arrays, and {@link #asMap()} exposes a read-only {@link NavigableMap} view for existing callers.
+ */
+public final class CandleSeries {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final CandleSeries EMPTY = new CandleSeries(new long[0], new long[0], new long[0], new long[0], new long[0], 0, 0);
+
+    private final long[] times;
+    private final long[] opens;
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] closes;
+    private final int from;
+    private final int to;
+
+    private CandleSeries(long[] times, long[] opens, long[] highs, long[] lows, long[] closes, int from, int to) {
+        this.times = times;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static CandleSeries empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * Wraps the arrays without copying them, so they must not be modified afterwards. Times must be strictly ascending
+     * epoch minutes.
+     */
+    public static CandleSeries of(long[] times, long[] opens, long[] highs, long[] lows, long[] closes) {
+        int size = times.length;
+        Preconditions.checkArgument(opens.length == size && highs.length == size && lows.length == size && closes.length == size,
+                "All columns must have the same length!");
+        for (int i = 1; i < size; i++) {
+            Preconditions.checkArgument(times[i - 1] < times[i], "Times must be strictly ascending!");
+        }
+
+        return size == 0 ? EMPTY : new CandleSeries(times, opens, highs, lows, closes, 0, size);
+    }
+
+    public static CandleSeries from(Map<LocalDateTime, CandlestickData> candles) {
+        if (candles instanceof MapView) {
+            return ((MapView) candles).series;
+        }
+
+        Builder builder = new Builder(candles.size());
+        candles.forEach(builder::add);
+
+        return builder.build();
+    }
+
+    /**
+     * Converts a local market time into minutes since the epoch, treating the local time as if it were UTC. This keeps
+     * the ordering of {@link LocalDateTime} without any time zone rules.
+     */
+    public static long epochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    public boolean isEmpty() {
+        return to == from;
+    }
+
+    public long epochMinute(int index) {
+        return times[offset(index)];
+    }
+
+    public LocalDateTime time(int index) {
+        return fromEpochMinute(epochMinute(index));
+    }
+
+    public long open(int index) {
+        return opens[offset(index)];
+    }
+
+    public long high(int index) {
+        return highs[offset(index)];
+    }
+
+    public long low(int index) {
+        return lows[offset(index)];
+    }
+
+    public long close(int index) {
+        return closes[offset(index)];
+    }
+
+    public CandlestickData candle(int index) {
+        int i = offset(index);
+        return new CandlestickData(opens[i], highs[i], lows[i], closes[i]);
+    }
+
+    /**
+     * @return the index of the candle starting at the exact time, or -1 if there isn't one
+     */
+    public int indexOf(LocalDateTime time) {
+        int index = ceilingIndex(time);
+        return index < size() && matches(index, time) ? index : -1;
+    }
+
+    public int indexOf(long epochMinute) {
+        int index = Arrays.binarySearch(times, from, to, epochMinute);
+        return index < 0 ? -1 : index - from;
+    }
+
+    public CandlestickData get(LocalDateTime time) {
+        int index = indexOf(time);
+        return index < 0 ? null : candle(index);
+    }
+
+    /**
+     * @return the index of the first candle at or after the time, or {@link #size()} if there isn't one
+     */
+    public int ceilingIndex(LocalDateTime time) {
+        long minute = epochMinute(time);
+        int index = lowerBound(minute);
+        if (index < size() && epochMinute(index) == minute && !isMinuteAligned(time)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the first candle strictly after the time, or {@link #size()} if there isn't one
+     */
+    public int higherIndex(LocalDateTime time) {
+        return lowerBound(epochMinute(time) + 1);
+    }
+
+    public CandleSeries subSeries(LocalDateTime fromKey, boolean fromInclusive, LocalDateTime toKey, boolean toInclusive) {
+        int start = fromInclusive ? ceilingIndex(fromKey) : higherIndex(fromKey);
+        int end = toInclusive ? higherIndex(toKey) : ceilingIndex(toKey);
+
+        return slice(start, end);
+    }
+
+    public CandleSeries headSeries(LocalDateTime toKey, boolean inclusive) {
+        return slice(0, inclusive ? higherIndex(toKey) : ceilingIndex(toKey));
+    }
+
+    public CandleSeries tailSeries(LocalDateTime fromKey, boolean inclusive) {
+        return slice(inclusive ? ceilingIndex(fromKey) : higherIndex(fromKey), size());
+    }
+
+    /**
+     * @return a view of at most the last count candles
+     */
+    public CandleSeries last(int count) {
+        Preconditions.checkArgument(count >= 0, "Count must not be negative!");
+
+        return slice(Math.max(0, size() - count), size());
+    }
+
+    /**
+     * Slices by index, where start is inclusive and end is exclusive. The returned series shares this series' arrays.
+     */
+    public CandleSeries slice(int start, int end) {
+        if (end <= start) {
+            return EMPTY;
+        }
+        Preconditions.checkPositionIndexes(start, end, size());
+
+        return start == 0 && end == size() ? this : new CandleSeries(times, opens, highs, lows, closes, from + start, from + end);
+    }
+
+    /**
+     * Aggregates every candle in the series into a single candle, using the same rules as
+     * {@link CandlestickData#aggregate(java.util.Collection)}.
+     */
+    public CandlestickData aggregate() {
+        Preconditions.checkArgument(!isEmpty());
+
+        long open = opens[from];
+        long close = closes[to - 1];
+        long high = Math.max(open, close);
+        long low = Math.min(open, close);
+
+        for (int i = from; i < to; i++) {
+            high = Math.max(high, highs[i]);
+            low = Math.min(low, lows[i]);
+        }
+
+        return new CandlestickData(open, high, low, close);
+    }
+
+    /**
+     * @return a copy of the series with every candle inverted, see {@link CandlestickData#inverse(CandlestickData)}
+     */
+    public CandleSeries inverse() {
+        int size = size();
+        long[] invertedOpens = new long[size];
+        long[] invertedHighs = new long[size];
+        long[] invertedLows = new long[size];
+        long[] invertedCloses = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            int offset = from + i;
+            invertedOpens[i] = invert(opens[offset]);
+            invertedHighs[i] = invert(lows[offset]);
+            invertedLows[i] = invert(highs[offset]);
+            invertedCloses[i] = invert(closes[offset]);
+        }
+
+        return new CandleSeries(Arrays.copyOfRange(times, from, to), invertedOpens, invertedHighs, invertedLows, invertedCloses, 0, size);
+    }
+
+    /**
+     * @return the distinct days that have at least one candle
+     */
+    public NavigableSet<LocalDate> availableDays() {
+        NavigableSet<LocalDate> days = new TreeSet<>();
+        long previousDay = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            long day = Math.floorDiv(times[i], MINUTES_PER_DAY);
+            if (day != previousDay) {
+                days.add(LocalDate.ofEpochDay(day));
+                previousDay = day;
+            }
+        }
+        return days;
+    }
+
+    public NavigableMap<LocalDateTime, CandlestickData> asMap() {
+        return new MapView(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CandleSeries that = (CandleSeries) o;
+        if (size() != that.size()) return false;
+
+        for (int i = 0; i < size(); i++) {
+            int a = from + i;
+            int b = that.from + i;
+            if (times[a] != that.times[b] || opens[a] != that.opens[b] || highs[a] != that.highs[b] ||
+                    lows[a] != that.lows[b] || closes[a] != that.closes[b]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = from; i < to; i++) {
+            result = 31 * result + Long.hashCode(times[i]);
+            result = 31 * result + Long.hashCode(closes[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("size", size())
+                .add("first", isEmpty() ? null : time(0))
+                .add("last", isEmpty() ? null : time(size() - 1))
+                .toString();
+    }
+
+    private int offset(int index) {
+        Preconditions.checkElementIndex(index, size());
+        return from + index;
+    }
+
+    private boolean matches(int index, LocalDateTime time) {
+        return isMinuteAligned(time) && epochMinute(index) == epochMinute(time);
+    }
+
+    private static boolean isMinuteAligned(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0;
+    }
+
+    /**
+     * @return the index of the first candle with an epoch minute greater than or equal to the one provided
+     */
+    private int lowerBound(long epochMinute) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < epochMinute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - from;
+    }
+
+    /**
+     * Accumulates candles into growable arrays. Candles are expected in ascending time order, in which case building
+     * is a simple array trim. A candle with the same time as the previous one replaces it. Out of order candles are
+     * supported, but are sorted when the series is built (with later additions winning for duplicate times).
+     */
+    public static final class Builder {
+        private long[] times;
+        private long[] opens;
+        private long[] highs;
+        private long[] lows;
+        private long[] closes;
+        private int size;
+        private boolean sorted = true;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            times = new long[capacity];
+            opens = new long[capacity];
+            highs = new long[capacity];
+            lows = new long[capacity];
+            closes = new long[capacity];
+        }
+
+        public Builder add(LocalDateTime time, CandlestickData candle) {
+            return add(epochMinute(time), candle.getO(), candle.getH(), candle.getL(), candle.getC());
+        }
+
+        public Builder add(LocalDateTime time, long open, long high, long low, long close) {
+            return add(epochMinute(time), open, high, low, close);
+        }
+
+        public Builder add(long epochMinute, long open, long high, long low, long close) {
+            int index = size;
+            if (size > 0) {
+                long previous = times[size - 1];
+                if (previous == epochMinute) {
+                    index = size - 1;
+                } else if (previous > epochMinute) {
+                    sorted = false;
+                }
+            }
+
+            if (index == size) {
+                ensureCapacity(size + 1);
+                size++;
+            }
+
+            times[index] = epochMinute;
+            opens[index] = open;
+            highs[index] = high;
+            lows[index] = low;
+            closes[index] = close;
+
+            return this;
+        }
+
+        public Builder addAll(CandleSeries series) {
+            ensureCapacity(size + series.size());
+            for (int i = series.from; i < series.to; i++) {
+                add(series.times[i], series.opens[i], series.highs[i], series.lows[i], series.closes[i]);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public CandleSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (!sorted) {
+                sort();
+            }
+            if (size < times.length) {
+                times = Arrays.copyOf(times, size);
+                opens = Arrays.copyOf(opens, size);
+                highs = Arrays.copyOf(highs, size);
+                lows = Arrays.copyOf(lows, size);
+                closes = Arrays.copyOf(closes, size);
+            }
+
+            return new CandleSeries(times, opens, highs, lows, closes, 0, size);
+        }
+
+        private void sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // Stable, so the last added candle for a time stays last
+            Arrays.sort(order, Comparator.comparingLong(i -> times[i]));
+
+            long[] sortedTimes = new long[size];
+            long[] sortedOpens = new long[size];
+            long[] sortedHighs = new long[size];
+            long[] sortedLows = new long[size];
+            long[] sortedCloses = new long[size];
+            int count = 0;
+
+            for (Integer i : order) {
+                if (count > 0 && sortedTimes[count - 1] == times[i]) {
+                    count--;
+                }
+                sortedTimes[count] = times[i];
+                sortedOpens[count] = opens[i];
+                sortedHighs[count] = highs[i];
+                sortedLows[count] = lows[i];
+                sortedCloses[count] = closes[i];
+                count++;
+            }
+
+            times = sortedTimes;
+            opens = sortedOpens;
+            highs = sortedHighs;
+            lows = sortedLows;
+            closes = sortedCloses;
+            size = count;
+            sorted = true;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > times.length) {
+                int newCapacity = Math.max(capacity, times.length + (times.length >> 1));
+                times = Arrays.copyOf(times, newCapacity);
+                opens = Arrays.copyOf(opens, newCapacity);
+                highs = Arrays.copyOf(highs, newCapacity);
+                lows = Arrays.copyOf(lows, newCapacity);
+                closes = Arrays.copyOf(closes, newCapacity);
+            }
+        }
+    }
+
+    /**
+     * Read-only {@link NavigableMap} view of a series. Lookups and range views are binary searches over the
+     * underlying arrays, the descending views are materialized copies.
+     */
+    private static final class MapView extends AbstractMap<LocalDateTime, CandlestickData> implements NavigableMap<LocalDateTime, CandlestickData> {
+
+        private final CandleSeries series;
+
+        private MapView(CandleSeries series) {
+            this.series = series;
+        }
+
+        @Override
+        public int size() {
+            return series.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return series.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof LocalDateTime && series.indexOf((LocalDateTime) key) >= 0;
+        }
+
+        @Override
+        public CandlestickData get(Object key) {
+            return key instanceof LocalDateTime ? series.get((LocalDateTime) key) : null;
+        }
+
+        @Override
+        public Set<Entry<LocalDateTime, CandlestickData>> entrySet() {
+            return new AbstractSet<Entry<LocalDateTime, CandlestickData>>() {
+                @Override
+                public Iterator<Entry<LocalDateTime, CandlestickData>> iterator() {
+                    return new Iterator<Entry<LocalDateTime, CandlestickData>>() {
+                        int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < series.size();
+                        }
+
+                        @Override
+                        public Entry<LocalDateTime, CandlestickData> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            return entry(index++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return series.size();
+                }
+            };
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> lowerEntry(LocalDateTime key) {
+            return entry(series.ceilingIndex(key) - 1);
+        }
+
+        @Override
+        public LocalDateTime lowerKey(LocalDateTime key) {
+            return key(series.ceilingIndex(key) - 1);
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> floorEntry(LocalDateTime key) {
+            return entry(series.higherIndex(key) - 1);
+        }
+
+        @Override
+        public LocalDateTime floorKey(LocalDateTime key) {
+            return key(series.higherIndex(key) - 1);
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> ceilingEntry(LocalDateTime key) {
+            return entry(series.ceilingIndex(key));
+        }
+
+        @Override
+        public LocalDateTime ceilingKey(LocalDateTime key) {
+            return key(series.ceilingIndex(key));
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> higherEntry(LocalDateTime key) {
+            return entry(series.higherIndex(key));
+        }
+
+        @Override
+        public LocalDateTime higherKey(LocalDateTime key) {
+            return key(series.higherIndex(key));
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> firstEntry() {
+            return entry(0);
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> lastEntry() {
+            return entry(series.size() - 1);
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> pollFirstEntry() {
+            throw new UnsupportedOperationException("Candle series are read-only");
+        }
+
+        @Override
+        public Entry<LocalDateTime, CandlestickData> pollLastEntry() {
+            throw new UnsupportedOperationException("Candle series are read-only");
+        }
+
+        @Override
+        public NavigableMap<LocalDateTime, CandlestickData> descendingMap() {
+            return Collections.unmodifiableNavigableMap(new TreeMap<>(this)).descendingMap();
+        }
+
+        @Override
+        public NavigableSet<LocalDateTime> navigableKeySet() {
+            return Collections.unmodifiableNavigableSet(new TreeSet<>(keySet()));
+        }
+
+        @Override
+        public NavigableSet<LocalDateTime> descendingKeySet() {
+            return navigableKeySet().descendingSet();
+        }
+
+        @Override
+        public NavigableMap<LocalDateTime, CandlestickData> subMap(LocalDateTime fromKey, boolean fromInclusive, LocalDateTime toKey, boolean toInclusive) {
+            Preconditions.checkArgument(!fromKey.isAfter(toKey), "fromKey > toKey");
+            return series.subSeries(fromKey, fromInclusive, toKey, toInclusive).asMap();
+        }
+
+        @Override
+        public NavigableMap<LocalDateTime, CandlestickData> headMap(LocalDateTime toKey, boolean inclusive) {
+            return series.headSeries(toKey, inclusive).asMap();
+        }
+
+        @Override
+        public NavigableMap<LocalDateTime, CandlestickData> tailMap(LocalDateTime fromKey, boolean inclusive) {
+            return series.tailSeries(fromKey, inclusive).asMap();
+        }
+
+        @Override
+        public Comparator<? super LocalDateTime> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<LocalDateTime, CandlestickData> subMap(LocalDateTime fromKey, LocalDateTime toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<LocalDateTime, CandlestickData> headMap(LocalDateTime toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<LocalDateTime, CandlestickData> tailMap(LocalDateTime fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        @Override
+        public LocalDateTime firstKey() {
+            if (series.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return series.time(0);
+        }
+
+        @Override
+        public LocalDateTime lastKey() {
+            if (series.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return series.time(series.size() - 1);
+        }
+
+        private Entry<LocalDateTime, CandlestickData> entry(int index) {
+            return index < 0 || index >= series.size() ? null :
+                    new SimpleImmutableEntry<>(series.time(index), series.candle(index));
+        }
+
+        private LocalDateTime key(int index) {
+            return index < 0 || index >= series.size() ? null : series.time(index);
+        }
+    }
+}
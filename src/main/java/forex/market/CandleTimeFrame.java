@@ -8,18 +8,18 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.TemporalAdjusters;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.SortedMap;
 import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import static java.util.Comparator.comparing;
 
 public enum CandleTimeFrame {
-    ONE_MINUTE(1) {
+    ONE_MINUTE(1, CandlestickGranularity.M1) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusMinutes(1);
@@ -39,7 +39,7 @@ public enum CandleTimeFrame {
         LocalDateTime calculateStart(LocalDateTime firstTime, int endOfTradingHour, DayOfWeek weeklyAlignment) {
             return firstTime.withSecond(0).withNano(0);
         }
-    }, FIVE_MINUTE(2) {
+    }, FIVE_MINUTE(2, CandlestickGranularity.M5) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusMinutes(5);
@@ -59,7 +59,7 @@ public enum CandleTimeFrame {
         LocalDateTime calculateStart(LocalDateTime firstTime, int endOfTradingHour, DayOfWeek weeklyAlignment) {
             return ONE_MINUTE.calculateStart(firstTime.minusMinutes(firstTime.getMinute() % 5));
         }
-    }, FIFTEEN_MINUTE(3) {
+    }, FIFTEEN_MINUTE(3, CandlestickGranularity.M15) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusMinutes(15);
@@ -79,7 +79,7 @@ public enum CandleTimeFrame {
         LocalDateTime calculateStart(LocalDateTime firstTime, int endOfTradingHour, DayOfWeek weeklyAlignment) {
             return ONE_MINUTE.calculateStart(firstTime.minusMinutes(firstTime.getMinute() % 15));
         }
-    }, THIRTY_MINUTE(4) {
+    }, THIRTY_MINUTE(4, CandlestickGranularity.M30) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusMinutes(30);
@@ -99,7 +99,7 @@ public enum CandleTimeFrame {
         LocalDateTime calculateStart(LocalDateTime firstTime, int endOfTradingHour, DayOfWeek weeklyAlignment) {
             return ONE_MINUTE.calculateStart(firstTime.minusMinutes(firstTime.getMinute() % 30));
         }
-    }, ONE_HOUR(5) {
+    }, ONE_HOUR(5, CandlestickGranularity.H1) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusHours(1);
@@ -119,7 +119,7 @@ public enum CandleTimeFrame {
         LocalDateTime calculateStart(LocalDateTime firstTime, int endOfTradingHour, DayOfWeek weeklyAlignment) {
             return ONE_MINUTE.calculateStart(firstTime.withMinute(0));
         }
-    }, FOUR_HOURS(6) {
+    }, FOUR_HOURS(6, CandlestickGranularity.H4) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusHours(4);
@@ -142,7 +142,7 @@ public enum CandleTimeFrame {
 
             return ONE_HOUR.calculateStart(firstTime.minusHours(hour % 4));
         }
-    }, ONE_DAY(7) {
+    }, ONE_DAY(7, CandlestickGranularity.D) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusDays(1);
@@ -166,7 +166,7 @@ public enum CandleTimeFrame {
             }
             return candleDay.atTime(endOfTradingHour, 0);
         }
-    }, ONE_WEEK(8) {
+    }, ONE_WEEK(8, CandlestickGranularity.W) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             return candleStart.plusWeeks(1);
@@ -186,7 +186,7 @@ public enum CandleTimeFrame {
         LocalDateTime calculateStart(LocalDateTime firstTime, int endOfTradingHour, DayOfWeek weeklyAlignment) {
             return ONE_DAY.calculateStart(firstTime).with(TemporalAdjusters.previousOrSame(weeklyAlignment));
         }
-    }, ONE_MONTH(9) {
+    }, ONE_MONTH(9, CandlestickGranularity.M) {
         @Override
         LocalDateTime adjustToNextCandle(LocalDateTime candleStart) {
             for (int i = 1; i < 3; i++) {
@@ -230,9 +230,11 @@ public enum CandleTimeFrame {
     };
 
     private final int sortOrder;
+    private final CandlestickGranularity granularity;
 
-    CandleTimeFrame(int sortOrder) {
+    CandleTimeFrame(int sortOrder, CandlestickGranularity granularity) {
         this.sortOrder = sortOrder;
+        this.granularity = granularity;
     }
 
     public static CandleTimeFrame from(CandlestickGranularity granularity) {
@@ -264,25 +266,53 @@ public enum CandleTimeFrame {
         return sortOrder;
     }
 
+    public CandlestickGranularity getGranularity() {
+        return granularity;
+    }
+
     private static final SortedSet<CandleTimeFrame> DESCENDING_TIME =
             Arrays.stream(CandleTimeFrame.values()).collect(Collectors.toCollection((() ->
                     new TreeSet<>(comparing(CandleTimeFrame::getSortOrder).reversed()))));
 
     public NavigableMap<LocalDateTime, CandlestickData> aggregate(NavigableMap<LocalDateTime, CandlestickData> ohlcData) {
+        return aggregate(CandleSeries.from(ohlcData)).asMap();
+    }
 
-        NavigableMap<LocalDateTime, CandlestickData> result = new TreeMap<>();
-        LocalDateTime firstCandle = calculateStart(ohlcData.firstKey());
-        LocalDateTime lastCandle = calculateStart(ohlcData.lastKey());
+    public CandleSeries aggregate(CandleSeries ohlcData) {
+        CandleAggregator aggregator = new CandleAggregator(this);
+        for (int i = 0; i < ohlcData.size(); i++) {
+            aggregator.add(ohlcData.epochMinute(i), ohlcData.open(i), ohlcData.high(i), ohlcData.low(i), ohlcData.close(i));
+        }
+        return aggregator.build();
+    }
 
-        for (LocalDateTime current = firstCandle; !current.isAfter(lastCandle); current = nextCandle(current)) {
-            SortedMap<LocalDateTime, CandlestickData> data = ohlcData.subMap(current, nextCandle(current));
-            if (data.isEmpty()) {
-                continue;
+    /**
+     * Aggregates one minute candles into every larger time frame in a single pass.
+     */
+    public static Map<CandleTimeFrame, CandleSeries> aggregateAll(CandleSeries oneMinuteData) {
+        CandleTimeFrame[] timeFrames = Arrays.stream(values())
+                .filter(it -> it != ONE_MINUTE)
+                .toArray(CandleTimeFrame[]::new);
+        CandleAggregator[] aggregators = Arrays.stream(timeFrames)
+                .map(CandleAggregator::new)
+                .toArray(CandleAggregator[]::new);
+
+        for (int i = 0; i < oneMinuteData.size(); i++) {
+            long time = oneMinuteData.epochMinute(i);
+            long open = oneMinuteData.open(i);
+            long high = oneMinuteData.high(i);
+            long low = oneMinuteData.low(i);
+            long close = oneMinuteData.close(i);
+
+            for (CandleAggregator aggregator : aggregators) {
+                aggregator.add(time, open, high, low, close);
             }
-            CandlestickData candle = CandlestickData.aggregate(data.values());
-            result.put(current, candle);
         }
 
+        Map<CandleTimeFrame, CandleSeries> result = new EnumMap<>(CandleTimeFrame.class);
+        for (int i = 0; i < timeFrames.length; i++) {
+            result.put(timeFrames[i], aggregators[i].build());
+        }
         return result;
     }
 
@@ -3,25 +3,38 @@ package forex.market;
 import com.google.common.collect.Range;
 import forex.broker.CandlestickData;
 
+import javax.annotation.Nullable;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 import static forex.broker.CandlestickData.inverse;
-import static forex.broker.CandlestickGranularity.M1;
+import static forex.market.CandleTimeFrame.ONE_DAY;
+import static forex.market.CandleTimeFrame.ONE_MINUTE;
+import static forex.market.CandleTimeFrame.ONE_MONTH;
 
 public class DBHistoryDataService implements InstrumentHistoryService {
 
     private final MarketTime clock;
     private final InstrumentCandleRepository repo;
+    @Nullable
+    private final RecentCandleCache recentCandles;
+    private final AvailableDaysIndex availableDays;
 
     public DBHistoryDataService(MarketTime clock, InstrumentCandleRepository repo) {
+        this(clock, repo, null, new AvailableDaysIndex(repo));
+    }
+
+    public DBHistoryDataService(MarketTime clock, InstrumentCandleRepository repo, @Nullable RecentCandleCache recentCandles,
+                                AvailableDaysIndex availableDays) {
         this.clock = clock;
         this.repo = repo;
+        this.recentCandles = recentCandles;
+        this.availableDays = availableDays;
     }
 
     @Override
@@ -58,20 +71,17 @@ public class DBHistoryDataService implements InstrumentHistoryService {
 
     @Override
     public Set<LocalDate> getAvailableDays(Instrument instrument, int year) {
-        return repo.findAll().stream()
-                .map(it -> it.getId().getTime().toLocalDate())
-                .collect(Collectors.toSet());
+        return availableDays.getAvailableDays(instrument.getBrokerInstrument(), year);
     }
 
-    NavigableMap<LocalDateTime, CandlestickData> getOHLC(CandleTimeFrame timeFrame, Instrument instrument, Range<LocalDateTime> between) {
-
-        TreeMap<LocalDateTime, CandlestickData> result = new TreeMap<>();
+    @Override
+    public boolean isAvailable(Instrument instrument, LocalDate date) {
+        return availableDays.isAvailable(instrument.getBrokerInstrument(), date);
+    }
 
-        Instrument brokerInstrument = instrument.getBrokerInstrument();
-        boolean inverse = instrument.isInverse();
+    NavigableMap<LocalDateTime, CandlestickData> getOHLC(CandleTimeFrame timeFrame, Instrument instrument, Range<LocalDateTime> between) {
 
-        LocalDateTime candle = timeFrame.calculateStart(between.lowerEndpoint());
-        LocalDateTime nextCandle = timeFrame.nextCandle(candle);
+        LocalDateTime firstCandleStart = timeFrame.calculateStart(between.lowerEndpoint());
 
         LocalDateTime now = clock.now();
         LocalDateTime currentCandleStart = timeFrame.calculateStart(now);
@@ -81,50 +91,60 @@ public class DBHistoryDataService implements InstrumentHistoryService {
             lastCandleStart = currentCandleStart;
         }
 
-        while (!candle.isAfter(lastCandleStart)) {
-
-            LocalDateTime maxTimeToUse = nextCandle;
-            if (maxTimeToUse.isAfter(now)) {
-                maxTimeToUse = now;
-            }
+        LocalDateTime end = timeFrame.nextCandle(lastCandleStart);
+        if (end.isAfter(now)) {
+            end = now;
+        }
 
-            OhlcProjection highLow = repo.findOhlc(brokerInstrument, candle, maxTimeToUse);
+        if (!end.isAfter(firstCandleStart)) {
+            return new TreeMap<>();
+        }
 
-            InstrumentCandleType id = new InstrumentCandleType();
-            id.setInstrument(brokerInstrument);
-            id.setGranularity(M1);
-            id.setTime(highLow.getOpen());
+        Instrument brokerInstrument = instrument.getBrokerInstrument();
 
-            Optional<InstrumentCandle> start = repo.findById(id);
-            if (!start.isPresent()) {
-                candle = nextCandle;
-                nextCandle = timeFrame.nextCandle(candle);
+        if (recentCandles != null) {
+            Optional<CandleSeries> oneMinuteCandles = recentCandles.oneMinuteCandles(brokerInstrument, firstCandleStart, end, now);
+            if (oneMinuteCandles.isPresent()) {
+                CandleSeries candles = timeFrame == ONE_MINUTE ? oneMinuteCandles.get() : timeFrame.aggregate(oneMinuteCandles.get());
 
-                continue;
+                return (instrument.isInverse() ? candles.inverse() : candles).asMap();
             }
-            InstrumentCandle open = start.get();
+        }
+
+        if (timeFrame == ONE_MONTH) {
+            // Months vary in length, so they're rolled up from the daily candles
+            return timeFrame.aggregate(getOHLC(ONE_DAY, instrument, Range.closed(firstCandleStart, end.minusMinutes(1))));
+        }
 
-            id.setTime(highLow.getClose());
+        NavigableMap<LocalDateTime, CandlestickData> candles = new TreeMap<>();
 
-            Optional<InstrumentCandle> end = repo.findById(id);
-            if (!end.isPresent()) {
-                candle = nextCandle;
-                nextCandle = timeFrame.nextCandle(candle);
+        // Rolled up candles are complete, so only those before the current candle can be used
+        LocalDateTime computeFrom = firstCandleStart;
+        if (timeFrame != ONE_MINUTE) {
+            LocalDateTime storedEnd = timeFrame.nextCandle(lastCandleStart);
+            if (storedEnd.isAfter(currentCandleStart)) {
+                storedEnd = currentCandleStart;
+            }
 
-                continue;
+            for (InstrumentCandle it : repo.findCandles(timeFrame.getGranularity(), brokerInstrument, firstCandleStart, storedEnd)) {
+                candles.put(it.getId().getTime(), new CandlestickData(it.getMidOpen(), it.getMidHigh(), it.getMidLow(), it.getMidClose()));
             }
-            InstrumentCandle close = end.get();
 
-            CandlestickData candlestickData = new CandlestickData(open.getMidOpen(), highLow.getHigh(), highLow.getLow(), close.getMidClose());
-            if (inverse) {
-                candlestickData = inverse(candlestickData);
+            if (!candles.isEmpty()) {
+                computeFrom = timeFrame.nextCandle(candles.lastKey());
             }
-            result.put(candle, candlestickData);
+        }
+
+        if (computeFrom.isBefore(end)) {
+            long candleMinutes = Duration.between(computeFrom, timeFrame.nextCandle(computeFrom)).toMinutes();
+
+            candles.putAll(repo.findOhlc(brokerInstrument, computeFrom, end, candleMinutes));
+        }
 
-            candle = nextCandle;
-            nextCandle = timeFrame.nextCandle(candle);
+        if (instrument.isInverse()) {
+            candles.replaceAll((time, candle) -> inverse(candle));
         }
 
-        return result;
+        return candles;
     }
 }
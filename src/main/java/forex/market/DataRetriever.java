@@ -1,14 +1,24 @@
 package forex.market;
 
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import forex.broker.RequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.collect.Iterables.size;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class DataRetriever<REQUEST, RESPONSE> {
 
@@ -19,18 +29,139 @@ public class DataRetriever<REQUEST, RESPONSE> {
         RESPONSE handleRequest(REQUEST request) throws RequestException;
     }
 
+    @FunctionalInterface
+    public interface ResponseHandler<RESPONSE> {
+        void handleResponse(RESPONSE response) throws RequestException;
+    }
+
+    /**
+     * Without a rate limiter requests are handled one at a time, two seconds apart. With one, up to the concurrent
+     * requests are in flight as fast as the limiter allows, while responses are handled in request order.
+     */
+    public static class Builder<REQUEST, RESPONSE> {
+        private final MarketTime clock;
+        private final RequestHandler<REQUEST, RESPONSE> handler;
+        private TokenBucket rateLimiter;
+        private int permitsPerRequest = 1;
+        private int concurrentRequests = 1;
+        private int maxAttempts = 1;
+        private long backoffMillis;
+
+        public Builder(MarketTime clock, RequestHandler<REQUEST, RESPONSE> handler) {
+            this.clock = clock;
+            this.handler = handler;
+        }
+
+        public Builder<REQUEST, RESPONSE> withRateLimiter(TokenBucket rateLimiter, int permitsPerRequest) {
+            Preconditions.checkArgument(permitsPerRequest > 0, "Permits per request must be positive");
+
+            this.rateLimiter = rateLimiter;
+            this.permitsPerRequest = permitsPerRequest;
+            return this;
+        }
+
+        public Builder<REQUEST, RESPONSE> withConcurrentRequests(int concurrentRequests) {
+            Preconditions.checkArgument(concurrentRequests > 0, "Concurrent requests must be positive");
+
+            this.concurrentRequests = concurrentRequests;
+            return this;
+        }
+
+        /**
+         * Transient failures are retried after the backoff, which doubles with each attempt.
+         */
+        public Builder<REQUEST, RESPONSE> withRetries(int maxAttempts, long backoffMillis) {
+            Preconditions.checkArgument(maxAttempts > 0, "Max attempts must be positive");
+            Preconditions.checkArgument(backoffMillis >= 0, "Backoff can not be negative");
+
+            this.maxAttempts = maxAttempts;
+            this.backoffMillis = backoffMillis;
+            return this;
+        }
+
+        public DataRetriever<REQUEST, RESPONSE> build() {
+            Preconditions.checkState(rateLimiter != null || concurrentRequests == 1,
+                    "Concurrent requests require a rate limiter");
+
+            return new DataRetriever<>(this);
+        }
+    }
+
     private final MarketTime clock;
     private final RequestHandler<REQUEST, RESPONSE> handler;
+    private final TokenBucket rateLimiter;
+    private final int permitsPerRequest;
+    private final int concurrentRequests;
+    private final int maxAttempts;
+    private final long backoffMillis;
 
     public DataRetriever(MarketTime clock, RequestHandler<REQUEST, RESPONSE> handler) {
-        this.clock = clock;
-        this.handler = handler;
+        this(new Builder<>(clock, handler));
     }
 
-    public List<RESPONSE> retrieve(Iterable<REQUEST> requests) throws RequestException {
+    private DataRetriever(Builder<REQUEST, RESPONSE> builder) {
+        this.clock = builder.clock;
+        this.handler = builder.handler;
+        this.rateLimiter = builder.rateLimiter;
+        this.permitsPerRequest = builder.permitsPerRequest;
+        this.concurrentRequests = builder.concurrentRequests;
+        this.maxAttempts = builder.maxAttempts;
+        this.backoffMillis = builder.backoffMillis;
+    }
 
+    public List<RESPONSE> retrieve(Iterable<REQUEST> requests) throws RequestException {
         List<RESPONSE> responses = new ArrayList<>(size(requests));
 
+        retrieve(requests, responses::add);
+
+        return responses;
+    }
+
+    /**
+     * Hands each response to the response handler in request order, without keeping them. When rate limited, the next
+     * requests are retrieved while a response is being handled.
+     *
+     * @return the number of responses handled
+     */
+    public int retrieve(Iterable<REQUEST> requests, ResponseHandler<RESPONSE> responseHandler) throws RequestException {
+        if (rateLimiter == null) {
+            return retrieveSequentially(requests, responseHandler);
+        }
+
+        int handled = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrentRequests,
+                new ThreadFactoryBuilder().setNameFormat("data-retriever-%d").setDaemon(true).build());
+        try {
+            // Keep retrieving ahead while responses are handled, without holding every response in memory
+            int window = concurrentRequests * 2;
+
+            Deque<Future<RESPONSE>> pending = new ArrayDeque<>(window);
+            Iterator<REQUEST> remaining = requests.iterator();
+            while (pending.size() < window && remaining.hasNext()) {
+                pending.add(submit(executor, remaining.next()));
+            }
+
+            while (!pending.isEmpty()) {
+                RESPONSE response = await(pending.poll());
+                if (remaining.hasNext()) {
+                    pending.add(submit(executor, remaining.next()));
+                }
+
+                responseHandler.handleResponse(response);
+                handled++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return handled;
+    }
+
+    private int retrieveSequentially(Iterable<REQUEST> requests, ResponseHandler<RESPONSE> responseHandler) throws RequestException {
+
+        int handled = 0;
+
         boolean throttle = false;
 
         for (REQUEST request : requests) {
@@ -44,9 +175,60 @@ public class DataRetriever<REQUEST, RESPONSE> {
                 throttle = true;
             }
 
-            responses.add(handler.handleRequest(request));
+            RESPONSE response;
+            try {
+                response = handle(request);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RequestException("Interrupted while retrieving " + request, e);
+            }
+
+            responseHandler.handleResponse(response);
+            handled++;
         }
 
-        return responses;
+        return handled;
+    }
+
+    private Future<RESPONSE> submit(ExecutorService executor, REQUEST request) {
+        return executor.submit(() -> handle(request));
+    }
+
+    private RESPONSE await(Future<RESPONSE> future) throws RequestException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestException("Interrupted while retrieving!", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RequestException) {
+                throw (RequestException) cause;
+            }
+            throw new RequestException("Unable to retrieve!", cause);
+        }
+    }
+
+    private RESPONSE handle(REQUEST request) throws RequestException, InterruptedException {
+        long backoff = backoffMillis;
+
+        for (int attempt = 1; ; attempt++) {
+            if (rateLimiter != null) {
+                rateLimiter.acquire(permitsPerRequest);
+            }
+
+            try {
+                return handler.handleRequest(request);
+            } catch (RequestException e) {
+                if (!e.isTransient() || attempt >= maxAttempts) {
+                    throw e;
+                }
+
+                LOG.warn("Attempt {} of {} failed for {}, retrying in {} ms", attempt, maxAttempts, request, backoff, e);
+
+                clock.sleep(backoff, MILLISECONDS);
+                backoff *= 2;
+            }
+        }
     }
 }
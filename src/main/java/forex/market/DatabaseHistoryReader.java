@@ -7,8 +7,6 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.NavigableMap;
-import java.util.Set;
-import java.util.TreeMap;
 
 public class DatabaseHistoryReader implements OneMinuteCandleReader {
 
@@ -20,16 +18,12 @@ public class DatabaseHistoryReader implements OneMinuteCandleReader {
 
     @Override
     public NavigableMap<LocalDateTime, CandlestickData> instrumentData(Instrument instrument, int year) throws IOException {
-        Set<InstrumentCandle> candles = instrumentCandleRepo.findByIdInstrumentAndIdTimeBetweenOrderByIdTime(instrument,
-                LocalDateTime.of(year, Month.JANUARY, 1, 0, 0), LocalDateTime.of(year + 1, Month.JANUARY, 1, 0, 0).minusSeconds(1));
-
-        TreeMap<LocalDateTime, CandlestickData> data = new TreeMap<>();
-
-        for (InstrumentCandle candle : candles) {
-            data.put(candle.getId().getTime(), new CandlestickData(candle.getMidOpen(), candle.getMidHigh(),
-                    candle.getMidLow(), candle.getMidClose()));
-        }
+        return instrumentSeries(instrument, year).asMap();
+    }
 
-        return data;
+    @Override
+    public CandleSeries instrumentSeries(Instrument instrument, int year) throws IOException {
+        return instrumentCandleRepo.findSeries(instrument,
+                LocalDateTime.of(year, Month.JANUARY, 1, 0, 0), LocalDateTime.of(year + 1, Month.JANUARY, 1, 0, 0));
     }
 }
@@ -0,0 +1,29 @@
+package forex.market;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Detects the database behind a JdbcTemplate once, for the statements that differ between MySQL and the H2 database
+ * used in tests and simulations.
+ */
+class DatabaseProduct {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean mysql;
+
+    DatabaseProduct(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    boolean isMysql() {
+        if (mysql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+
+            mysql = "MySQL".equalsIgnoreCase(product);
+        }
+        return mysql;
+    }
+}
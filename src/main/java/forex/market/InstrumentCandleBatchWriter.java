@@ -0,0 +1,117 @@
+package forex.market;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Upserts instrument candles with multi-row statements, which avoids the select before each insert that JPA does
+ * for entities with an embedded id. Storing the same candles again replaces them, so retrieval ranges can be retried.
+ */
+@Service
+public class InstrumentCandleBatchWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstrumentCandleBatchWriter.class);
+
+    private static final List<String> KEY_COLUMNS = ImmutableList.of("granularity", "instrument", "time");
+    private static final List<String> VALUE_COLUMNS = ImmutableList.of("mid_open", "mid_high", "mid_low", "mid_close",
+            "open_spread", "high_spread", "low_spread", "close_spread");
+    private static final int COLUMNS = KEY_COLUMNS.size() + VALUE_COLUMNS.size();
+    private static final int MAX_PARAMETERS = 65535;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseProduct database;
+    private final int batchSize;
+
+    public InstrumentCandleBatchWriter(JdbcTemplate jdbcTemplate, @Value("${forex.candles.batchSize:1000}") int batchSize) {
+        Preconditions.checkArgument(batchSize > 0 && batchSize * COLUMNS <= MAX_PARAMETERS,
+                "The batch size must be between 1 and %s", MAX_PARAMETERS / COLUMNS);
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.database = new DatabaseProduct(jdbcTemplate);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of candles written
+     */
+    public int upsert(List<InstrumentCandle> candles) {
+        if (candles.isEmpty()) {
+            return 0;
+        }
+
+        Stopwatch timer = Stopwatch.createStarted();
+
+        String fullBatch = null;
+        for (List<InstrumentCandle> batch : Lists.partition(candles, batchSize)) {
+            String sql;
+            if (batch.size() == batchSize) {
+                if (fullBatch == null) {
+                    fullBatch = upsertStatement(batchSize);
+                }
+                sql = fullBatch;
+            } else {
+                sql = upsertStatement(batch.size());
+            }
+
+            jdbcTemplate.update(sql, ps -> setParameters(ps, batch));
+        }
+
+        long micros = Math.max(timer.elapsed(MICROSECONDS), 1);
+        LOG.info("Stored {} instrument candles in {} ({} rows/sec)", candles.size(), timer, candles.size() * 1_000_000L / micros);
+
+        return candles.size();
+    }
+
+    private static void setParameters(PreparedStatement ps, List<InstrumentCandle> batch) throws SQLException {
+        int parameter = 1;
+        for (InstrumentCandle candle : batch) {
+            InstrumentCandleType id = candle.getId();
+
+            // Enums are stored by ordinal, the same as the JPA mapping
+            ps.setInt(parameter++, id.getGranularity().ordinal());
+            ps.setInt(parameter++, id.getInstrument().ordinal());
+            ps.setTimestamp(parameter++, Timestamp.valueOf(id.getTime()));
+            ps.setLong(parameter++, candle.getMidOpen());
+            ps.setLong(parameter++, candle.getMidHigh());
+            ps.setLong(parameter++, candle.getMidLow());
+            ps.setLong(parameter++, candle.getMidClose());
+            ps.setLong(parameter++, candle.getOpenSpread());
+            ps.setLong(parameter++, candle.getHighSpread());
+            ps.setLong(parameter++, candle.getLowSpread());
+            ps.setLong(parameter++, candle.getCloseSpread());
+        }
+    }
+
+    private String upsertStatement(int rows) {
+        String columns = String.join(", ", KEY_COLUMNS) + ", " + String.join(", ", VALUE_COLUMNS);
+        String row = "(" + String.join(", ", Collections.nCopies(COLUMNS, "?")) + ")";
+        String values = String.join(", ", Collections.nCopies(rows, row));
+
+        if (database.isMysql()) {
+            StringBuilder sql = new StringBuilder("INSERT INTO instrument_candle (").append(columns).append(") VALUES ")
+                    .append(values).append(" ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < VALUE_COLUMNS.size(); i++) {
+                String column = VALUE_COLUMNS.get(i);
+                sql.append(i == 0 ? "" : ", ").append(column).append(" = VALUES(").append(column).append(')');
+            }
+            return sql.toString();
+        }
+
+        return "MERGE INTO instrument_candle (" + columns + ") KEY (" + String.join(", ", KEY_COLUMNS) + ") VALUES " + values;
+    }
+}
@@ -0,0 +1,29 @@
+package forex.market;
+
+import forex.broker.CandlestickData;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.NavigableMap;
+import java.util.Set;
+
+public interface InstrumentCandleOhlcRepository {
+
+    /**
+     * Rolls up the one minute candles into fixed length candles starting at the inclusive start.
+     *
+     * @return the candles by their start time, without candles that have no data
+     */
+    NavigableMap<LocalDateTime, CandlestickData> findOhlc(Instrument instrument, LocalDateTime inclusiveStart,
+                                                          LocalDateTime exclusiveEnd, long candleMinutes);
+
+    /**
+     * Streams the one minute candles in the range straight into a series, without loading them as entities.
+     */
+    CandleSeries findSeries(Instrument instrument, LocalDateTime inclusiveStart, LocalDateTime exclusiveEnd);
+
+    /**
+     * @return the days with one minute candles in the year
+     */
+    Set<LocalDate> findAvailableDays(Instrument instrument, int year);
+}
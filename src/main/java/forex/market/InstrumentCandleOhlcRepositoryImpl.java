@@ -0,0 +1,118 @@
+package forex.market;
+
+import forex.broker.CandlestickData;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static forex.broker.CandlestickGranularity.M1;
+
+/**
+ * JDBC queries over the one minute candles that would be too slow through entities.
+ * <p>
+ * {@link #findOhlc} computes every candle in a single grouped query. Each one minute candle is assigned to a candle by
+ * the minutes since the start, the high and low are grouped directly, and the open and close come from joining back to
+ * the first and last one minute candles of each group. {@link #findSeries} streams the one minute candles into a
+ * series, and {@link #findAvailableDays} only selects the distinct days.
+ */
+class InstrumentCandleOhlcRepositoryImpl implements InstrumentCandleOhlcRepository {
+
+    private static final DateTimeFormatter TIMESTAMP_LITERAL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int STREAMING_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseProduct database;
+
+    InstrumentCandleOhlcRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.database = new DatabaseProduct(jdbcTemplate);
+    }
+
+    @Override
+    public NavigableMap<LocalDateTime, CandlestickData> findOhlc(Instrument instrument, LocalDateTime inclusiveStart,
+                                                                 LocalDateTime exclusiveEnd, long candleMinutes) {
+
+        // Inlined instead of a parameter so the grouping expression is the same in the select list
+        String minutesSinceStart = String.format(database.isMysql() ? "TIMESTAMPDIFF(MINUTE, TIMESTAMP '%s', time)" : "DATEDIFF('MINUTE', TIMESTAMP '%s', time)",
+                TIMESTAMP_LITERAL.format(inclusiveStart));
+        String candle = "FLOOR(" + minutesSinceStart + " / " + candleMinutes + ")";
+
+        String sql = "SELECT c.candle, o.mid_open, c.high, c.low, e.mid_close FROM (" +
+                "SELECT " + candle + " AS candle, MIN(time) AS open_time, MAX(mid_high) AS high, MIN(mid_low) AS low, MAX(time) AS close_time " +
+                "FROM instrument_candle " +
+                "WHERE granularity = ? AND instrument = ? AND time >= ? AND time < ? " +
+                "GROUP BY " + candle +
+                ") c " +
+                "JOIN instrument_candle o ON o.granularity = ? AND o.instrument = ? AND o.time = c.open_time " +
+                "JOIN instrument_candle e ON e.granularity = ? AND e.instrument = ? AND e.time = c.close_time";
+
+        NavigableMap<LocalDateTime, CandlestickData> candles = new TreeMap<>();
+
+        // Enums are stored by ordinal, the same as the JPA mapping
+        jdbcTemplate.query(sql, ps -> {
+            ps.setInt(1, M1.ordinal());
+            ps.setInt(2, instrument.ordinal());
+            ps.setTimestamp(3, Timestamp.valueOf(inclusiveStart));
+            ps.setTimestamp(4, Timestamp.valueOf(exclusiveEnd));
+            ps.setInt(5, M1.ordinal());
+            ps.setInt(6, instrument.ordinal());
+            ps.setInt(7, M1.ordinal());
+            ps.setInt(8, instrument.ordinal());
+        }, rs -> {
+            candles.put(inclusiveStart.plusMinutes(rs.getLong(1) * candleMinutes),
+                    new CandlestickData(rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)));
+        });
+
+        return candles;
+    }
+
+    @Override
+    public CandleSeries findSeries(Instrument instrument, LocalDateTime inclusiveStart, LocalDateTime exclusiveEnd) {
+        CandleSeries.Builder series = CandleSeries.builder();
+        // MySQL only streams rows instead of buffering the whole result with this fetch size
+        int fetchSize = database.isMysql() ? Integer.MIN_VALUE : STREAMING_FETCH_SIZE;
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT time, mid_open, mid_high, mid_low, mid_close " +
+                    "FROM instrument_candle WHERE granularity = ? AND instrument = ? AND time >= ? AND time < ? " +
+                    "ORDER BY time", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setInt(1, M1.ordinal());
+            ps.setInt(2, instrument.ordinal());
+            ps.setTimestamp(3, Timestamp.valueOf(inclusiveStart));
+            ps.setTimestamp(4, Timestamp.valueOf(exclusiveEnd));
+            return ps;
+        }, rs -> {
+            series.add(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+        });
+
+        return series.build();
+    }
+
+    @Override
+    public Set<LocalDate> findAvailableDays(Instrument instrument, int year) {
+        Set<LocalDate> days = new HashSet<>();
+
+        jdbcTemplate.query("SELECT DISTINCT CAST(time AS DATE) FROM instrument_candle " +
+                "WHERE granularity = ? AND instrument = ? AND time >= ? AND time < ?", ps -> {
+            ps.setInt(1, M1.ordinal());
+            ps.setInt(2, instrument.ordinal());
+            ps.setTimestamp(3, Timestamp.valueOf(LocalDate.of(year, 1, 1).atStartOfDay()));
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDate.of(year + 1, 1, 1).atStartOfDay()));
+        }, rs -> {
+            days.add(rs.getDate(1).toLocalDate());
+        });
+
+        return days;
+    }
+}
@@ -1,23 +1,31 @@
 package forex.market;
 
+import forex.broker.CandlestickGranularity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
-import java.util.Set;
+import java.util.List;
 
-public interface InstrumentCandleRepository extends JpaRepository<InstrumentCandle, InstrumentCandleType> {
+public interface InstrumentCandleRepository extends JpaRepository<InstrumentCandle, InstrumentCandleType>, InstrumentCandleOhlcRepository {
 
     @Query("SELECT MAX(ic.id.time) FROM InstrumentCandle ic")
     LocalDateTime findMaxTimestamp();
 
-    Set<InstrumentCandle> findByIdInstrumentAndIdTimeBetweenOrderByIdTime(Instrument instrument, LocalDateTime start, LocalDateTime end);
+    @Query("SELECT MIN(ic.id.time) FROM InstrumentCandle ic WHERE ic.id.granularity = :granularity AND ic.id.instrument = :instrument")
+    LocalDateTime findMinTimestamp(@Param("granularity") CandlestickGranularity granularity,
+                                   @Param("instrument") Instrument instrument);
 
-    @Query("SELECT MIN(ic.id.time) as open, MAX(ic.midHigh) as high, MIN(ic.midLow) as low, MAX(ic.id.time) as close " +
-            "FROM InstrumentCandle ic " +
-            "WHERE ic.id.instrument = :instrument AND ic.id.time >= :inclusiveStart and ic.id.time < :exclusiveEnd")
-    OhlcProjection findOhlc(@Param("instrument") Instrument instrument,
-                            @Param("inclusiveStart") LocalDateTime inclusiveStart,
-                            @Param("exclusiveEnd") LocalDateTime exclusiveEnd);
+    @Query("SELECT MAX(ic.id.time) FROM InstrumentCandle ic WHERE ic.id.granularity = :granularity AND ic.id.instrument = :instrument")
+    LocalDateTime findMaxTimestamp(@Param("granularity") CandlestickGranularity granularity,
+                                   @Param("instrument") Instrument instrument);
+
+    @Query("SELECT ic FROM InstrumentCandle ic " +
+            "WHERE ic.id.granularity = :granularity AND ic.id.instrument = :instrument " +
+            "AND ic.id.time >= :inclusiveStart AND ic.id.time < :exclusiveEnd ORDER BY ic.id.time")
+    List<InstrumentCandle> findCandles(@Param("granularity") CandlestickGranularity granularity,
+                                       @Param("instrument") Instrument instrument,
+                                       @Param("inclusiveStart") LocalDateTime inclusiveStart,
+                                       @Param("exclusiveEnd") LocalDateTime exclusiveEnd);
 }
@@ -0,0 +1,116 @@
+package forex.market;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import forex.broker.CandlestickData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import static forex.broker.CandlestickGranularity.M1;
+import static forex.market.CandleTimeFrame.FIFTEEN_MINUTE;
+import static forex.market.CandleTimeFrame.FIVE_MINUTE;
+import static forex.market.CandleTimeFrame.FOUR_HOURS;
+import static forex.market.CandleTimeFrame.ONE_DAY;
+import static forex.market.CandleTimeFrame.ONE_HOUR;
+import static forex.market.CandleTimeFrame.ONE_MINUTE;
+import static forex.market.CandleTimeFrame.ONE_WEEK;
+import static forex.market.CandleTimeFrame.THIRTY_MINUTE;
+
+/**
+ * Stores completed candles for the larger time frames next to the one minute candles, continuing from the latest
+ * candle stored for each time frame. The first roll up backfills from the first one minute candle. Spreads are not
+ * rolled up.
+ */
+@Service
+public class InstrumentCandleRollup {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InstrumentCandleRollup.class);
+
+    static final List<CandleTimeFrame> TIME_FRAMES = ImmutableList.of(FIVE_MINUTE, FIFTEEN_MINUTE, THIRTY_MINUTE,
+            ONE_HOUR, FOUR_HOURS, ONE_DAY, ONE_WEEK);
+
+    private static final int CANDLES_PER_QUERY = 10_000;
+
+    private final InstrumentCandleRepository repo;
+    private final InstrumentCandleBatchWriter writer;
+
+    public InstrumentCandleRollup(InstrumentCandleRepository repo, InstrumentCandleBatchWriter writer) {
+        this.repo = repo;
+        this.writer = writer;
+    }
+
+    /**
+     * @return the number of candles stored
+     */
+    public int rollup(Instrument instrument) {
+        LocalDateTime latestOneMinute = repo.findMaxTimestamp(M1, instrument);
+        if (latestOneMinute == null) {
+            return 0;
+        }
+
+        Stopwatch timer = Stopwatch.createStarted();
+
+        // A candle is complete once there is one minute data through its end
+        LocalDateTime endOfData = ONE_MINUTE.nextCandle(latestOneMinute);
+
+        int stored = 0;
+        for (CandleTimeFrame timeFrame : TIME_FRAMES) {
+            LocalDateTime latestStored = repo.findMaxTimestamp(timeFrame.getGranularity(), instrument);
+            LocalDateTime start = latestStored == null ?
+                    timeFrame.calculateStart(repo.findMinTimestamp(M1, instrument)) : timeFrame.nextCandle(latestStored);
+            LocalDateTime end = timeFrame.calculateStart(endOfData);
+
+            stored += rollup(timeFrame, instrument, start, end);
+        }
+
+        if (stored > 0) {
+            LOG.info("Rolled up {} {} candles through {} in {}", stored, instrument, endOfData, timer);
+        }
+
+        return stored;
+    }
+
+    private int rollup(CandleTimeFrame timeFrame, Instrument instrument, LocalDateTime start, LocalDateTime exclusiveEnd) {
+        long candleMinutes = Duration.between(start, timeFrame.nextCandle(start)).toMinutes();
+
+        int stored = 0;
+        while (start.isBefore(exclusiveEnd)) {
+            LocalDateTime end = start.plusMinutes(candleMinutes * CANDLES_PER_QUERY);
+            if (end.isAfter(exclusiveEnd)) {
+                end = exclusiveEnd;
+            }
+
+            NavigableMap<LocalDateTime, CandlestickData> candles = repo.findOhlc(instrument, start, end, candleMinutes);
+
+            List<InstrumentCandle> entities = new ArrayList<>(candles.size());
+            for (Map.Entry<LocalDateTime, CandlestickData> it : candles.entrySet()) {
+                InstrumentCandleType id = new InstrumentCandleType();
+                id.setGranularity(timeFrame.getGranularity());
+                id.setInstrument(instrument);
+                id.setTime(it.getKey());
+
+                InstrumentCandle candle = new InstrumentCandle();
+                candle.setId(id);
+                candle.setMidOpen(it.getValue().getO());
+                candle.setMidHigh(it.getValue().getH());
+                candle.setMidLow(it.getValue().getL());
+                candle.setMidClose(it.getValue().getC());
+
+                entities.add(candle);
+            }
+
+            stored += writer.upsert(entities);
+            start = end;
+        }
+
+        return stored;
+    }
+}
@@ -10,5 +10,16 @@ public interface InstrumentCandleService {
 
     List<InstrumentCandle> retrieveAndStoreOneMinuteCandles(Range<LocalDateTime> inclusiveRange) throws RequestException;
 
+    List<InstrumentCandle> retrieveOneMinuteCandles(Range<LocalDateTime> inclusiveRange) throws RequestException;
+
+    int storeOneMinuteCandles(List<InstrumentCandle> candles);
+
+    /**
+     * Stores the completed larger time frame candles for the one minute candles stored since the last roll up.
+     *
+     * @return the number of candles stored
+     */
+    int rollupCandles();
+
     LocalDateTime findLatestStoredMinute();
 }
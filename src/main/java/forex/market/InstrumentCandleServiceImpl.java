@@ -8,6 +8,8 @@ import forex.broker.Context;
 import forex.broker.InstrumentCandlesRequest;
 import forex.broker.RequestException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
@@ -25,17 +27,37 @@ public class InstrumentCandleServiceImpl implements InstrumentCandleService {
 
     private final Context context;
     private final InstrumentCandleRepository instrumentCandleRepo;
-
-    public InstrumentCandleServiceImpl(Context context, InstrumentCandleRepository instrumentCandleRepo) {
+    private final InstrumentCandleBatchWriter instrumentCandleWriter;
+    private final InstrumentCandleRollup instrumentCandleRollup;
+    private final RecentCandleCache recentCandles;
+    private final AvailableDaysIndex availableDays;
+
+    public InstrumentCandleServiceImpl(Context context, InstrumentCandleRepository instrumentCandleRepo,
+                                       InstrumentCandleBatchWriter instrumentCandleWriter,
+                                       InstrumentCandleRollup instrumentCandleRollup,
+                                       RecentCandleCache recentCandles, AvailableDaysIndex availableDays) {
         this.context = context;
         this.instrumentCandleRepo = instrumentCandleRepo;
+        this.instrumentCandleWriter = instrumentCandleWriter;
+        this.instrumentCandleRollup = instrumentCandleRollup;
+        this.recentCandles = recentCandles;
+        this.availableDays = availableDays;
     }
 
     @Transactional
     @Override
     public List<InstrumentCandle> retrieveAndStoreOneMinuteCandles(Range<LocalDateTime> inclusiveRange) throws RequestException {
 
-        List<InstrumentCandle> retrievedAndStored = new ArrayList<>();
+        List<InstrumentCandle> retrieved = retrieveOneMinuteCandles(inclusiveRange);
+        storeOneMinuteCandles(retrieved);
+
+        return retrieved;
+    }
+
+    @Override
+    public List<InstrumentCandle> retrieveOneMinuteCandles(Range<LocalDateTime> inclusiveRange) throws RequestException {
+
+        List<InstrumentCandle> retrieved = new ArrayList<>();
 
         for (Instrument instrument : Instrument.values()) {
 
@@ -72,10 +94,51 @@ public class InstrumentCandleServiceImpl implements InstrumentCandleService {
                 return candle;
             }).collect(toList());
 
-            retrievedAndStored.addAll(instrumentCandleRepo.saveAll(entities));
+            retrieved.addAll(entities);
         }
 
-        return retrievedAndStored;
+        return retrieved;
+    }
+
+    @Transactional
+    @Override
+    public int storeOneMinuteCandles(List<InstrumentCandle> candles) {
+        int stored = instrumentCandleWriter.upsert(candles);
+        afterCommit(() -> {
+            recentCandles.stored(candles);
+            availableDays.stored(candles);
+        });
+
+        return stored;
+    }
+
+    /**
+     * Runs once the transaction commits, so the caches never serve candles that were rolled back. Without a
+     * transaction the candles are already stored, so it runs right away.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public int rollupCandles() {
+        int stored = 0;
+        for (Instrument instrument : Instrument.values()) {
+            if (!instrument.isInverse()) {
+                stored += instrumentCandleRollup.rollup(instrument);
+            }
+        }
+        return stored;
     }
 
     @Override
@@ -24,4 +24,17 @@ public interface InstrumentHistoryService {
     Optional<InstrumentHistory> getData(Instrument instrument, LocalDateTime time);
 
     Set<LocalDate> getAvailableDays(Instrument instrument, int year);
+
+    default boolean isAvailable(Instrument instrument, LocalDate date) {
+        return getAvailableDays(instrument, date.getYear()).contains(date);
+    }
+
+    /**
+     * @return the first time with data after the given time, up to and including the end
+     */
+    default Optional<LocalDateTime> nextAvailableTime(Instrument instrument, LocalDateTime after, LocalDateTime end) {
+        NavigableMap<LocalDateTime, CandlestickData> candles = getOneMinuteCandles(instrument, Range.closed(after, end));
+
+        return Optional.ofNullable(candles.higherKey(after));
+    }
 }
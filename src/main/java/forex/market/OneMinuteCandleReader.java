@@ -10,4 +10,7 @@ public interface OneMinuteCandleReader {
 
     NavigableMap<LocalDateTime, CandlestickData> instrumentData(Instrument instrument, int year) throws IOException;
 
+    default CandleSeries instrumentSeries(Instrument instrument, int year) throws IOException {
+        return CandleSeries.from(instrumentData(instrument, year));
+    }
 }
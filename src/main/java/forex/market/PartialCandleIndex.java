@@ -0,0 +1,85 @@
+package forex.market;
+
+import com.google.common.base.Preconditions;
+import forex.broker.CandlestickData;
+
+import java.time.LocalDateTime;
+
+import static forex.market.CandleSeries.epochMinute;
+import static forex.market.CandleSeries.fromEpochMinute;
+
+/**
+ * Answers the open, high, low and close of a candle that is still in progress, from the start of the candle through a
+ * given minute, without scanning the one minute candles. For every minute it keeps the index of the first minute in
+ * the same candle and the running high and low since then.
+ */
+public final class PartialCandleIndex {
+
+    private final CandleTimeFrame timeFrame;
+    private final CandleSeries candles;
+    private final int[] candleStarts;
+    private final long[] runningHighs;
+    private final long[] runningLows;
+
+    private PartialCandleIndex(CandleTimeFrame timeFrame, CandleSeries candles, int[] candleStarts, long[] runningHighs,
+                               long[] runningLows) {
+        this.timeFrame = timeFrame;
+        this.candles = candles;
+        this.candleStarts = candleStarts;
+        this.runningHighs = runningHighs;
+        this.runningLows = runningLows;
+    }
+
+    public static PartialCandleIndex create(CandleTimeFrame timeFrame, CandleSeries oneMinuteCandles) {
+        int size = oneMinuteCandles.size();
+        int[] candleStarts = new int[size];
+        long[] runningHighs = new long[size];
+        long[] runningLows = new long[size];
+
+        int candleStart = 0;
+        long candleEnd = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            long minute = oneMinuteCandles.epochMinute(i);
+            if (minute >= candleEnd) {
+                LocalDateTime start = timeFrame.calculateStart(fromEpochMinute(minute));
+                candleEnd = epochMinute(timeFrame.nextCandle(start));
+                candleStart = i;
+
+                runningHighs[i] = oneMinuteCandles.high(i);
+                runningLows[i] = oneMinuteCandles.low(i);
+            } else {
+                runningHighs[i] = Math.max(runningHighs[i - 1], oneMinuteCandles.high(i));
+                runningLows[i] = Math.min(runningLows[i - 1], oneMinuteCandles.low(i));
+            }
+            candleStarts[i] = candleStart;
+        }
+
+        return new PartialCandleIndex(timeFrame, oneMinuteCandles, candleStarts, runningHighs, runningLows);
+    }
+
+    public CandleTimeFrame getTimeFrame() {
+        return timeFrame;
+    }
+
+    /**
+     * @param candleStart the start of the candle in progress
+     * @param time        the last minute to include, must be within the candle
+     * @return the aggregate of the one minute candles from the candle start through the time, or null if there are none
+     */
+    public CandlestickData partialCandle(LocalDateTime candleStart, LocalDateTime time) {
+        Preconditions.checkArgument(timeFrame.calculateStart(time).equals(candleStart),
+                "%s is not within the %s candle starting at %s", time, timeFrame, candleStart);
+
+        int last = candles.higherIndex(time) - 1;
+        if (last < 0 || candles.epochMinute(last) < epochMinute(candleStart)) {
+            return null;
+        }
+
+        int first = candleStarts[last];
+        long open = candles.open(first);
+        long close = candles.close(last);
+
+        return new CandlestickData(open, Math.max(runningHighs[last], Math.max(open, close)),
+                Math.min(runningLows[last], Math.min(open, close)), close);
+    }
+}
@@ -0,0 +1,181 @@
+package forex.market;
+
+import com.google.common.base.Preconditions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static forex.broker.CandlestickGranularity.M1;
+import static forex.market.CandleSeries.epochMinute;
+import static forex.market.CandleTimeFrame.ONE_MINUTE;
+
+/**
+ * The most recent one minute candles for each instrument, so traders asking for the same ranges don't each go to the
+ * database. An instrument is loaded from the database the first time it's read, then kept current by the candles as
+ * they are stored. Once the buffer is full the oldest candles are dropped, and ranges starting before the oldest
+ * candle kept are left to the database.
+ */
+@Service
+public class RecentCandleCache {
+
+    private final InstrumentCandleRepository repo;
+    private final Duration retention;
+    private final int capacity;
+    private final Map<Instrument, Ring> rings = new EnumMap<>(Instrument.class);
+
+    public RecentCandleCache(InstrumentCandleRepository repo, @Value("${forex.candles.cacheWeeks:4}") int weeks) {
+        this(repo, Duration.ofDays(7L * weeks));
+    }
+
+    RecentCandleCache(InstrumentCandleRepository repo, Duration retention) {
+        Preconditions.checkArgument(retention.toMinutes() > 0, "Retention must be at least a minute");
+
+        this.repo = repo;
+        this.retention = retention;
+        this.capacity = (int) retention.toMinutes();
+    }
+
+    /**
+     * Adds stored candles to the instruments already loaded. Candles for other instruments are left for the initial load.
+     */
+    public synchronized void stored(List<InstrumentCandle> candles) {
+        for (InstrumentCandle candle : candles) {
+            InstrumentCandleType id = candle.getId();
+            if (id.getGranularity() != M1) {
+                continue;
+            }
+
+            Ring ring = rings.get(id.getInstrument());
+            if (ring != null && !ring.put(epochMinute(id.getTime()), candle.getMidOpen(), candle.getMidHigh(),
+                    candle.getMidLow(), candle.getMidClose())) {
+                // Can't insert into the middle of the buffer, so start over from the database on the next read
+                rings.remove(id.getInstrument());
+            }
+        }
+    }
+
+    /**
+     * @return the one minute candles, or empty if the range starts before the candles kept
+     */
+    public synchronized Optional<CandleSeries> oneMinuteCandles(Instrument brokerInstrument, LocalDateTime inclusiveStart,
+                                                                LocalDateTime exclusiveEnd, LocalDateTime now) {
+        Ring ring = rings.get(brokerInstrument);
+        if (ring == null) {
+            ring = load(brokerInstrument, now);
+        }
+
+        long start = epochMinute(inclusiveStart);
+        if (start < ring.coveredFrom) {
+            return Optional.empty();
+        }
+
+        return Optional.of(ring.series(start, epochMinute(exclusiveEnd)));
+    }
+
+    private Ring load(Instrument brokerInstrument, LocalDateTime now) {
+        LocalDateTime end = ONE_MINUTE.nextCandle(now);
+        LocalDateTime start = end.minus(retention);
+
+        Ring ring = new Ring(capacity, epochMinute(start));
+        for (InstrumentCandle candle : repo.findCandles(M1, brokerInstrument, start, end)) {
+            ring.put(epochMinute(candle.getId().getTime()), candle.getMidOpen(), candle.getMidHigh(),
+                    candle.getMidLow(), candle.getMidClose());
+        }
+        rings.put(brokerInstrument, ring);
+
+        return ring;
+    }
+
+    /**
+     * Candles in ascending time order, overwriting the oldest when full.
+     */
+    static final class Ring {
+        private final long[] times;
+        private final long[] opens;
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] closes;
+
+        private int head;
+        private int size;
+        private long coveredFrom;
+
+        Ring(int capacity, long coveredFrom) {
+            this.times = new long[capacity];
+            this.opens = new long[capacity];
+            this.highs = new long[capacity];
+            this.lows = new long[capacity];
+            this.closes = new long[capacity];
+            this.coveredFrom = coveredFrom;
+        }
+
+        /**
+         * @return false if the candle is covered and older than the latest candle, but wasn't already in the buffer
+         */
+        boolean put(long time, long open, long high, long low, long close) {
+            if (time < coveredFrom) {
+                return true;
+            }
+
+            int index;
+            if (size > 0 && time <= times[offset(size - 1)]) {
+                int position = lowerBound(time);
+                if (position == size || times[offset(position)] != time) {
+                    return false;
+                }
+                index = offset(position);
+            } else if (size < times.length) {
+                index = offset(size++);
+            } else {
+                index = head;
+                head = offset(1);
+                coveredFrom = times[index] + 1;
+            }
+
+            times[index] = time;
+            opens[index] = open;
+            highs[index] = high;
+            lows[index] = low;
+            closes[index] = close;
+
+            return true;
+        }
+
+        CandleSeries series(long inclusiveStart, long exclusiveEnd) {
+            int from = lowerBound(inclusiveStart);
+            int to = lowerBound(exclusiveEnd);
+
+            CandleSeries.Builder series = CandleSeries.builder(Math.max(to - from, 0));
+            for (int i = from; i < to; i++) {
+                int index = offset(i);
+                series.add(times[index], opens[index], highs[index], lows[index], closes[index]);
+            }
+            return series.build();
+        }
+
+        private int offset(int position) {
+            return (head + position) % times.length;
+        }
+
+        // The first position with a time at or after the given time
+        private int lowerBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[offset(mid)] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package forex.market;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Limits requests to a steady rate, allowing bursts up to the capacity. Permits are reserved before waiting, so an
+ * empty bucket goes into debt and callers are served in the order they asked instead of racing for each new permit.
+ */
+public class TokenBucket {
+
+    private final MarketTime clock;
+    private final Ticker ticker;
+    private final double nanosPerPermit;
+    private final int capacity;
+
+    private double available;
+    private long lastRefill;
+
+    public TokenBucket(MarketTime clock, double permitsPerSecond) {
+        this(clock, Ticker.systemTicker(), permitsPerSecond, (int) Math.max(1, permitsPerSecond));
+    }
+
+    public TokenBucket(MarketTime clock, Ticker ticker, double permitsPerSecond, int capacity) {
+        Preconditions.checkArgument(permitsPerSecond > 0, "Permits per second must be positive");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+
+        this.clock = clock;
+        this.ticker = ticker;
+        this.nanosPerPermit = SECONDS.toNanos(1) / permitsPerSecond;
+        this.capacity = capacity;
+        this.available = capacity;
+        this.lastRefill = ticker.read();
+    }
+
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            clock.sleep(waitNanos, NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return the nanoseconds to wait before the reserved permits are available
+     */
+    synchronized long reserve(int permits) {
+        Preconditions.checkArgument(permits > 0, "Permits must be positive");
+
+        long now = ticker.read();
+        available = Math.min(capacity, available + (now - lastRefill) / nanosPerPermit);
+        lastRefill = now;
+        available -= permits;
+
+        return available >= 0 ? 0 : (long) Math.ceil(-available * nanosPerPermit);
+    }
+}
@@ -7,6 +7,9 @@ public interface Watcher {
 
     boolean keepGoing(LocalDateTime now);
 
+    /**
+     * Called once the interval's processing is done, so the wait can account for how long it took.
+     */
     long millisUntilNextInterval();
 
     boolean logTime(LocalDateTime now);
@@ -64,7 +64,7 @@ public class Trader implements ForexTrader {
         List<TradeSummary> positions = account.getTrades();
 
         LocalDateTime now = clock.now();
-        boolean stopTrading = now.getHour() > 11 && now.getDayOfWeek() == FRIDAY;
+        boolean stopTrading = isStopTrading(now);
 
         if (!positions.isEmpty()) {
             TradeSummary positionValue = positions.iterator().next();
@@ -149,6 +149,13 @@ public class Trader implements ForexTrader {
                 .toString();
     }
 
+    /**
+     * @return whether positions are closed and no new ones opened, which is from noon Friday regardless of the strategy
+     */
+    public static boolean isStopTrading(LocalDateTime now) {
+        return now.getHour() > 11 && now.getDayOfWeek() == FRIDAY;
+    }
+
     private static SortedSet<TradeSummary> closedTrades() {
         return new TreeSet<>(comparing(TradeSummary::getOpenTime));
     }
@@ -1,5 +1,6 @@
 package forex.trader;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import forex.broker.Account;
 import forex.broker.AccountAndTrades;
 import forex.broker.AccountChanges;
@@ -7,6 +8,7 @@ import forex.broker.AccountChangesRequest;
 import forex.broker.AccountChangesResponse;
 import forex.broker.AccountSummary;
 import forex.broker.Context;
+import forex.broker.Order;
 import forex.broker.Orders;
 import forex.broker.RequestException;
 import forex.broker.Trade;
@@ -20,64 +22,109 @@ import forex.market.TradeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.transaction.Transactional;
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static forex.broker.TradeStateFilter.CLOSED;
+import static java.util.Collections.emptyList;
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+/**
+ * Database access is in explicit transactions, so reading an account kept in memory with write behind doesn't open one.
+ */
 @Service
-@Transactional
 class TraderServiceImpl implements TraderService {
 
     private static final Logger LOG = LoggerFactory.getLogger(TraderServiceImpl.class);
 
     private static final String INVALID_TRANSACTION_ID_MESSAGE = "The transaction ID range specified is invalid";
+    private static final int CLOSED_TRADES = 10;
 
     private final Context context;
     private final MarketTime clock;
     private final AccountRepository accountRepository;
     private final TradeRepository tradeRepository;
     private final AccountOrderService orderService;
+    private final TransactionTemplate transactions;
+    @Nullable
+    private final ExecutorService writeBehind;
+    private final Map<String, AccountAndTrades> accounts = new ConcurrentHashMap<>();
 
+    TraderServiceImpl(Context context,
+                      MarketTime clock,
+                      AccountRepository accountRepository,
+                      TradeRepository tradeRepository,
+                      AccountOrderService orderService,
+                      PlatformTransactionManager transactionManager) {
+        this(context, clock, accountRepository, tradeRepository, orderService, transactionManager, false);
+    }
+
+    /**
+     * With write behind, each account is read from the database once and then kept in memory, current with the
+     * account changes. Changes are persisted in order on a background thread, so refreshing an account only costs the
+     * broker request.
+     */
     @Autowired
     TraderServiceImpl(Context context,
                       MarketTime clock,
                       AccountRepository accountRepository,
                       TradeRepository tradeRepository,
-                      AccountOrderService orderService) {
+                      AccountOrderService orderService,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${forex.accounts.writeBehind:false}") boolean writeBehind) {
         this.context = context;
         this.clock = clock;
         this.accountRepository = accountRepository;
         this.tradeRepository = tradeRepository;
         this.orderService = orderService;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.writeBehind = writeBehind ? Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("account-writer-%d").setDaemon(true).build()) : null;
+    }
+
+    @PreDestroy
+    void flush() throws InterruptedException {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+            if (!writeBehind.awaitTermination(30, SECONDS)) {
+                LOG.error("Account changes were still being written at shutdown!");
+            }
+        }
     }
 
     private void refreshAccount(AccountChangesRequest request) throws RequestException {
 
         AccountChangesResponse response = context.accountChanges(request);
 
-        String accountID = request.getAccountID();
-        AccountSummary currentState = getAccountSummary(accountID);
+        AccountSummary currentState = getAccountSummary(request.getAccountID());
         AccountSummary newState = currentState.processChanges(response);
+        List<Trade> tradesToMerge = tradesToMerge(currentState.getId(), response.getAccountChanges());
 
-        if (!currentState.equals(newState)) {
-            accountRepository.save(newState.getAccount());
-        }
-
-        AccountChanges accountChanges = response.getAccountChanges();
-
-        orderService.saveIfNotExists(accountChanges.getCreatedOrders());
-        orderService.upsert(accountChanges.getFilledOrders());
-        orderService.upsert(accountChanges.getCanceledOrders());
+        persistChanges(currentState, newState, response.getAccountChanges(), tradesToMerge);
+    }
 
+    private List<Trade> tradesToMerge(String accountID, AccountChanges accountChanges) throws RequestException {
         List<Trade> tradesToMerge = new ArrayList<>();
         accountChanges.getTradesOpened().forEach(it ->
                 tradesToMerge.add(new Trade(it)));
@@ -85,7 +132,7 @@ class TraderServiceImpl implements TraderService {
         List<TradeSummary> tradesClosed = accountChanges.getTradesClosed();
         if (!tradesClosed.isEmpty()) {
             Set<String> tradeIds = tradesClosed.stream().map(TradeSummary::getTradeId).collect(toSet());
-            TradeListRequest tradeListRequest = new TradeListRequest(currentState.getId(), CLOSED, tradeIds);
+            TradeListRequest tradeListRequest = new TradeListRequest(accountID, CLOSED, tradeIds);
             TradeListResponse tradeListResponse = context.listTrade(tradeListRequest);
 
             tradeListResponse.getTrades().stream()
@@ -93,6 +140,19 @@ class TraderServiceImpl implements TraderService {
                     .forEach(tradesToMerge::add);
         }
 
+        return tradesToMerge;
+    }
+
+    private void persistChanges(AccountSummary currentState, AccountSummary newState, AccountChanges accountChanges,
+                                List<Trade> tradesToMerge) {
+        if (!currentState.equals(newState)) {
+            accountRepository.save(newState.getAccount());
+        }
+
+        orderService.saveIfNotExists(accountChanges.getCreatedOrders());
+        orderService.upsert(accountChanges.getFilledOrders());
+        orderService.upsert(accountChanges.getCanceledOrders());
+
         for (Trade tradeToMerge : tradesToMerge) {
             Trade existingTrade = tradeRepository.findByAccountIdAndTradeId(tradeToMerge.getAccountId(), tradeToMerge.getTradeId());
 
@@ -105,7 +165,10 @@ class TraderServiceImpl implements TraderService {
     }
 
     private void initializeAccount(String accountId, int numberClosedTrades) throws RequestException {
-        AccountAndTrades accountAndTrades = context.initializeAccount(accountId, numberClosedTrades);
+        persistInitialized(context.initializeAccount(accountId, numberClosedTrades));
+    }
+
+    private void persistInitialized(AccountAndTrades accountAndTrades) {
         AccountSummary accountSummary = accountAndTrades.getAccount();
 
         accountRepository.save(accountSummary.getAccount());
@@ -161,6 +224,121 @@ class TraderServiceImpl implements TraderService {
 
     @Override // TODO: Change to optional
     public AccountAndTrades accountAndTrades(String accountId, int numberClosedTrades) throws RequestException {
+        if (writeBehind == null) {
+            return accountAndTradesInTransaction(accountId, numberClosedTrades);
+        }
+
+        AccountAndTrades current = accounts.get(accountId);
+        if (current == null) {
+            // Nothing is waiting to be written for the account yet, so the database is current
+            current = accountAndTradesInTransaction(accountId, numberClosedTrades);
+            if (current != null) {
+                accounts.put(accountId, current);
+            }
+            return current;
+        }
+
+        AccountAndTrades updated;
+
+        String lastTransactionID = current.getAccount().getLastTransactionID();
+        try {
+            AccountChangesResponse response = context.accountChanges(new AccountChangesRequest(accountId, lastTransactionID));
+
+            AccountSummary currentState = current.getAccount();
+            AccountSummary processed = currentState.processChanges(response);
+            AccountChanges accountChanges = response.getAccountChanges();
+            List<Trade> tradesToMerge = tradesToMerge(accountId, accountChanges);
+
+            AccountSummary newState = new AccountSummary(processed.getAccount(), processed.getTrades(),
+                    pendingOrders(currentState.getPendingOrders(), accountChanges));
+            updated = new AccountAndTrades(newState, latestClosedTrades(current.getTrades(), tradesToMerge));
+
+            writeBehind.execute(() -> persist(accountId, () -> persistChanges(currentState, processed, accountChanges, tradesToMerge)));
+        } catch (RequestException e) {
+            if (INVALID_TRANSACTION_ID_MESSAGE.equals(e.getMessage())) {
+                LOG.error("Invalid transaction id: {}, attempting to reinitialize", lastTransactionID);
+            } else {
+                LOG.error("Unable to refresh account, attempting to reinitialize", e);
+            }
+
+            AccountAndTrades initialized = context.initializeAccount(accountId, numberClosedTrades);
+            updated = new AccountAndTrades(initialized.getAccount(), latestClosedTrades(initialized.getTrades(), emptyList()));
+
+            writeBehind.execute(() -> persist(accountId, () -> persistInitialized(initialized)));
+        }
+
+        accounts.put(accountId, updated);
+
+        return updated;
+    }
+
+    private void persist(String accountId, Runnable persistence) {
+        try {
+            transactions.execute(status -> {
+                persistence.run();
+                return null;
+            });
+        } catch (Exception e) {
+            LOG.error("Unable to persist changes for account {}", accountId, e);
+        }
+    }
+
+    private static Orders pendingOrders(Orders pending, AccountChanges changes) {
+        Set<String> done = Stream.concat(changes.getFilledOrders().all().stream(), changes.getCanceledOrders().all().stream())
+                .map(Order::getOrderId)
+                .collect(toSet());
+        Orders created = changes.getCreatedOrders();
+
+        return new Orders(pending(pending.getMarketOrders(), created.getMarketOrders(), done),
+                pending(pending.getLimitOrders(), created.getLimitOrders(), done),
+                pending(pending.getTakeProfits(), created.getTakeProfits(), done),
+                pending(pending.getStopLosses(), created.getStopLosses(), done));
+    }
+
+    private static <T extends Order> List<T> pending(List<T> pending, List<T> created, Set<String> done) {
+        Map<String, T> byOrderId = new LinkedHashMap<>();
+        pending.forEach(it -> byOrderId.put(it.getOrderId(), it));
+        created.forEach(it -> byOrderId.putIfAbsent(it.getOrderId(), it));
+        byOrderId.keySet().removeAll(done);
+
+        return new ArrayList<>(byOrderId.values());
+    }
+
+    private static List<Trade> latestClosedTrades(List<Trade> closedTrades, List<Trade> merged) {
+        Map<String, Trade> byTradeId = new LinkedHashMap<>();
+        closedTrades.forEach(it -> byTradeId.put(it.getTradeId(), it));
+        merged.stream().filter(it -> it.getCloseTime() != null).forEach(it -> byTradeId.put(it.getTradeId(), it));
+
+        return byTradeId.values().stream()
+                .filter(it -> it.getCloseTime() != null)
+                .sorted(comparing(Trade::getCloseTime).reversed())
+                .limit(CLOSED_TRADES)
+                .collect(toList());
+    }
+
+    /**
+     * A failed broker request doesn't roll back what was already written, the same as a checked exception thrown from
+     * a transactional method.
+     */
+    private AccountAndTrades accountAndTradesInTransaction(String accountId, int numberClosedTrades) throws RequestException {
+        AtomicReference<RequestException> failure = new AtomicReference<>();
+
+        AccountAndTrades accountAndTrades = transactions.execute(status -> {
+            try {
+                return accountAndTradesFromDatabase(accountId, numberClosedTrades);
+            } catch (RequestException e) {
+                failure.set(e);
+                return null;
+            }
+        });
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return accountAndTrades;
+    }
+
+    private AccountAndTrades accountAndTradesFromDatabase(String accountId, int numberClosedTrades) throws RequestException {
         Optional<Account> accountOpt = accountRepository.findById(accountId);
         if (accountOpt.isPresent()) {
             String lastTransactionID = accountOpt.get().getLastTransactionID();
@@ -183,7 +361,7 @@ class TraderServiceImpl implements TraderService {
             return null;
         }
 
-        List<Trade> closedTrades = tradeRepository.findByAccountIdAndCloseTimeIsNotNullOrderByCloseTimeDesc(accountId, PageRequest.of(0, 10));
+        List<Trade> closedTrades = tradeRepository.findByAccountIdAndCloseTimeIsNotNullOrderByCloseTimeDesc(accountId, PageRequest.of(0, CLOSED_TRADES));
 
         return new AccountAndTrades(getAccountSummary(accountId), closedTrades);
     }
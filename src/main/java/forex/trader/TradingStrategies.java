@@ -1,21 +1,19 @@
 package forex.trader;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Range;
-import forex.broker.CandlestickData;
 import forex.broker.ForexBroker;
 import forex.broker.OpenPositionRequest;
 import forex.broker.Quote;
 import forex.broker.RequestException;
 import forex.broker.TradeSummary;
+import forex.market.CandleSeries;
 import forex.market.Instrument;
 import forex.market.MarketTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Random;
 
@@ -40,12 +38,17 @@ public enum TradingStrategies implements TradingStrategy {
             return openPositionRequest;
         }
     }, HISTORY_COMPARATOR2 {
+        @Override
+        public boolean isActive(LocalDateTime time) {
+            return time.getMinute() % 8 == 0;
+        }
+
         @Override
         public Optional<OpenPositionRequest> shouldOpenPosition(ForexTrader trader, ForexBroker broker, MarketTime clock) throws Exception {
             LocalDateTime now = clock.now();
             int minute = now.getMinute();
 
-            if (!(minute % 8 == 0)) {
+            if (!isActive(now)) {
                 return Optional.empty();
             }
 
@@ -62,36 +65,28 @@ public enum TradingStrategies implements TradingStrategy {
      * fashion for the purpose of regression testing various position sizes and position stances.
      */
     REGRESSION_COMPARATOR {
+        @Override
+        public boolean isActive(LocalDateTime time) {
+            return time.getMinute() % 10 == 0;
+        }
+
         @Override
         public Optional<OpenPositionRequest> shouldOpenPosition(ForexTrader trader, ForexBroker broker, MarketTime clock) throws Exception {
             LocalDateTime now = clock.now();
-            if (!(now.getMinute() % 10 == 0)) {
+            if (!isActive(now)) {
                 return Optional.empty();
             }
 
             Instrument pair = Instrument.EURUSD;
 
-            CandlestickData[] oneWeekCandles = TradingStrategies.twoMostRecent(broker.getOneWeekCandles(trader, pair, Range.closed(now.minusWeeks(3), now)));
-            CandlestickData thisWeek = oneWeekCandles[0];
-            CandlestickData lastWeek = oneWeekCandles[1];
-
-            boolean thisWeekHigher = thisWeek.getH() > lastWeek.getH();
-
-            CandlestickData[] oneDayCandles = TradingStrategies.twoMostRecent(broker.getOneDayCandles(trader, pair, Range.closed(now.minusDays(5), now)));
-            CandlestickData today = oneDayCandles[0];
-            CandlestickData yesterday = oneDayCandles[1];
-
-            boolean todayHigher = today.getH() > yesterday.getH();
+            boolean thisWeekHigher = TradingStrategies.mostRecentHigher(broker.getOneWeekCandles(trader, pair, Range.closed(now.minusWeeks(3), now)));
+            boolean todayHigher = TradingStrategies.mostRecentHigher(broker.getOneDayCandles(trader, pair, Range.closed(now.minusDays(5), now)));
 
             if (!(thisWeekHigher == todayHigher)) {
                 return Optional.empty();
             }
 
-            CandlestickData[] fourHourCandles = TradingStrategies.twoMostRecent(broker.getFourHourCandles(trader, pair, Range.closed(now.minusDays(5), now)));
-            long currentHigh = fourHourCandles[0].getH();
-            long previousHigh = fourHourCandles[1].getH();
-
-            boolean thisFourHigher = currentHigh > previousHigh;
+            boolean thisFourHigher = TradingStrategies.mostRecentHigher(broker.getFourHourCandles(trader, pair, Range.closed(now.minusDays(5), now)));
 
             if (!(todayHigher == thisFourHigher)) {
                 return Optional.empty();
@@ -104,10 +99,15 @@ public enum TradingStrategies implements TradingStrategy {
         }
     },
     SMARTER_MARTINGALE {
+        @Override
+        public boolean isActive(LocalDateTime time) {
+            return time.getMinute() % 16 == 0;
+        }
+
         @Override
         public Optional<OpenPositionRequest> shouldOpenPosition(ForexTrader trader, ForexBroker broker, MarketTime clock) throws Exception {
             LocalDateTime now = clock.now();
-            if (!(now.getMinute() % 16 == 0)) {
+            if (!isActive(now)) {
                 return Optional.empty();
             }
 
@@ -140,36 +140,28 @@ public enum TradingStrategies implements TradingStrategy {
         }
     },
     SMARTER_RANDOM_POSITION {
+        @Override
+        public boolean isActive(LocalDateTime time) {
+            return time.getMinute() % 16 == 0;
+        }
+
         @Override
         public Optional<OpenPositionRequest> shouldOpenPosition(ForexTrader trader, ForexBroker broker, MarketTime clock) throws Exception {
             LocalDateTime now = clock.now();
-            if (!(now.getMinute() % 16 == 0)) {
+            if (!isActive(now)) {
                 return Optional.empty();
             }
 
             Instrument pair = randomInstrument();
 
-            CandlestickData[] oneWeekCandles = TradingStrategies.twoMostRecent(broker.getOneWeekCandles(trader, pair, Range.closed(now.minusWeeks(3), now)));
-            CandlestickData thisWeek = oneWeekCandles[0];
-            CandlestickData lastWeek = oneWeekCandles[1];
-
-            boolean thisWeekHigher = thisWeek.getH() > lastWeek.getH();
-
-            CandlestickData[] oneDayCandles = TradingStrategies.twoMostRecent(broker.getOneDayCandles(trader, pair, Range.closed(now.minusDays(5), now)));
-            CandlestickData today = oneDayCandles[0];
-            CandlestickData yesterday = oneDayCandles[1];
-
-            boolean todayHigher = today.getH() > yesterday.getH();
+            boolean thisWeekHigher = TradingStrategies.mostRecentHigher(broker.getOneWeekCandles(trader, pair, Range.closed(now.minusWeeks(3), now)));
+            boolean todayHigher = TradingStrategies.mostRecentHigher(broker.getOneDayCandles(trader, pair, Range.closed(now.minusDays(5), now)));
 
             if (!(thisWeekHigher == todayHigher)) {
                 return Optional.empty();
             }
 
-            CandlestickData[] fourHourCandles = TradingStrategies.twoMostRecent(broker.getFourHourCandles(trader, pair, Range.closed(now.minusDays(5), now)));
-            long currentHigh = fourHourCandles[0].getH();
-            long previousHigh = fourHourCandles[1].getH();
-
-            boolean thisFourHigher = currentHigh > previousHigh;
+            boolean thisFourHigher = TradingStrategies.mostRecentHigher(broker.getFourHourCandles(trader, pair, Range.closed(now.minusDays(5), now)));
 
             if (!(todayHigher == thisFourHigher)) {
                 return Optional.empty();
@@ -223,13 +215,10 @@ public enum TradingStrategies implements TradingStrategy {
         return instruments[random.nextInt(instruments.length)];
     }
 
-    private static CandlestickData[] twoMostRecent(NavigableMap<LocalDateTime, CandlestickData> ascendingCandles) {
-        NavigableMap<LocalDateTime, CandlestickData> descending = ascendingCandles.descendingMap();
-        Iterator<Map.Entry<LocalDateTime, CandlestickData>> oneWeekIter = descending.entrySet().iterator();
-
-        Map.Entry<LocalDateTime, CandlestickData> mostRecent = oneWeekIter.next();
-        Map.Entry<LocalDateTime, CandlestickData> second = oneWeekIter.next();
+    private static boolean mostRecentHigher(CandleSeries ascendingCandles) {
+        CandleSeries twoMostRecent = ascendingCandles.last(2);
+        Preconditions.checkState(twoMostRecent.size() == 2, "Need two candles to compare, but had %s", twoMostRecent.size());
 
-        return new CandlestickData[]{mostRecent.getValue(), second.getValue()};
+        return twoMostRecent.high(1) > twoMostRecent.high(0);
     }
 }
@@ -4,11 +4,20 @@ import forex.broker.ForexBroker;
 import forex.broker.OpenPositionRequest;
 import forex.market.MarketTime;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface TradingStrategy {
 
     Optional<OpenPositionRequest> shouldOpenPosition(ForexTrader trader, ForexBroker broker, MarketTime clock) throws Exception;
 
+    /**
+     * @return whether the strategy could open a position at the time, strategies that only trade on some minutes
+     * return false for the rest so they don't need to be evaluated
+     */
+    default boolean isActive(LocalDateTime time) {
+        return true;
+    }
+
     String getName();
 }
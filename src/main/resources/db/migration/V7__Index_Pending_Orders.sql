@@ -0,0 +1 @@
+CREATE INDEX `account_pending_order` ON `account_order` (`account_id`, `filled_time`, `canceled_time`);
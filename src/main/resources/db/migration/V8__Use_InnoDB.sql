@@ -0,0 +1,91 @@
+-- Row level locking lets candles be stored while they're being read, and enforces the declared foreign keys,
+-- which MyISAM parsed and then dropped. Parents are converted before the tables referencing them.
+ALTER TABLE `instrument_candle`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account`
+  ENGINE = InnoDB;
+
+ALTER TABLE `trade`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_market_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_limit_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_stop_loss_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_take_profit_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_transaction`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_transaction_market_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_transaction_limit_order`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_transaction_order_fill`
+  ENGINE = InnoDB;
+
+ALTER TABLE `account_transaction_order_cancel`
+  ENGINE = InnoDB;
+
+-- Candle range scans all lead with granularity and instrument, so they read the clustered primary key directly,
+-- this only serves the latest stored minute across all candles
+CREATE INDEX `candle_time` ON `instrument_candle` (`time`);
+
+-- Open trades, and closed trades paged by most recently closed
+CREATE INDEX `account_trade_close_time` ON `trade` (`account_id`, `close_time`);
+
+ALTER TABLE `trade`
+  ADD FOREIGN KEY (`account_id`) REFERENCES `account` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_order`
+  ADD FOREIGN KEY (`account_id`) REFERENCES `account` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_market_order`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_order` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_limit_order`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_order` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_stop_loss_order`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_order` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_take_profit_order`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_order` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_transaction`
+  ADD FOREIGN KEY (`account_id`) REFERENCES `account` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_transaction_market_order`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_transaction` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_transaction_limit_order`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_transaction` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_transaction_order_fill`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_transaction` (`id`)
+    ON DELETE CASCADE;
+
+ALTER TABLE `account_transaction_order_cancel`
+  ADD FOREIGN KEY (`id`) REFERENCES `account_transaction` (`id`)
+    ON DELETE CASCADE;
@@ -0,0 +1,17 @@
+-- Simulated account ids are prefixed with the scenario name, which doesn't fit in 25 characters. Every column holding
+-- an account id is widened together, foreign key checks are off so the referencing columns can change with the parent.
+SET FOREIGN_KEY_CHECKS = 0;
+
+ALTER TABLE `account`
+  MODIFY `id` varchar(255) NOT NULL;
+
+ALTER TABLE `trade`
+  MODIFY `account_id` varchar(255) NOT NULL;
+
+ALTER TABLE `account_order`
+  MODIFY `account_id` varchar(255) NOT NULL;
+
+ALTER TABLE `account_transaction`
+  MODIFY `account_id` varchar(255) NOT NULL;
+
+SET FOREIGN_KEY_CHECKS = 1;
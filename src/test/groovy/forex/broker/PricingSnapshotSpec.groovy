@@ -0,0 +1,57 @@
+package forex.broker
+
+import forex.simulator.TestClock
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+
+import static forex.market.Instrument.EURUSD
+import static forex.market.Instrument.USDEUR
+import static java.time.Month.SEPTEMBER
+import static java.time.temporal.ChronoUnit.SECONDS
+
+class PricingSnapshotSpec extends Specification {
+
+    def clock = new TestClock(LocalDateTime.of(2018, SEPTEMBER, 14, 12, 0))
+    def context = Mock(Context)
+
+    def 'should serve every instrument from one pricing request until the snapshot is stale'() {
+
+        def pricing = new PricingSnapshot(clock, Duration.ofSeconds(5))
+
+        when: 'quotes for an instrument and its inverse are requested within the max age'
+        def quote = pricing.getQuote(context, '1', EURUSD)
+        clock.advance(4, SECONDS)
+        def inverseQuote = pricing.getQuote(context, '2', USDEUR)
+
+        then: 'only the broker instruments were requested, once'
+        1 * context.getPricing({ it.instruments == [EURUSD] as Set }) >> new PricingGetResponse([new Price(EURUSD, 125000L, 125020L)])
+
+        and: 'the inverse quote was derived from the broker instrument'
+        quote.bid == 125000L
+        quote.ask == 125020L
+        inverseQuote.bid == 79987L
+        inverseQuote.ask == 80000L
+    }
+
+    def 'should request new prices once the snapshot reaches the max age'() {
+
+        def pricing = new PricingSnapshot(clock, Duration.ofSeconds(5))
+
+        when: 'a quote is requested after the max age'
+        pricing.getQuote(context, '1', EURUSD)
+        clock.advance(5, SECONDS)
+        def actual = pricing.getQuote(context, '1', EURUSD)
+
+        then: 'prices were requested again'
+        2 * context.getPricing(_) >>> [
+                new PricingGetResponse([new Price(EURUSD, 125000L, 125020L)]),
+                new PricingGetResponse([new Price(EURUSD, 125010L, 125030L)])
+        ]
+
+        and: 'the new prices were used'
+        actual.bid == 125010L
+        actual.ask == 125030L
+    }
+}
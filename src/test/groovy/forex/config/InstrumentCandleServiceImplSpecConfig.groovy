@@ -1,13 +1,18 @@
 package forex.config
 
 import forex.broker.Context
+import forex.market.AvailableDaysIndex
+import forex.market.InstrumentCandleBatchWriter
 import forex.market.InstrumentCandleRepository
+import forex.market.InstrumentCandleRollup
 import forex.market.InstrumentCandleService
 import forex.market.InstrumentCandleServiceImpl
 import forex.market.PersistenceConfig
+import forex.market.RecentCandleCache
 import org.springframework.boot.SpringBootConfiguration
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Import
+import org.springframework.jdbc.core.JdbcTemplate
 import spock.mock.DetachedMockFactory
 
 @SpringBootConfiguration
@@ -22,7 +27,29 @@ class InstrumentCandleServiceImplSpecConfig {
     }
 
     @Bean
-    InstrumentCandleService service(Context context, InstrumentCandleRepository repo) {
-        new InstrumentCandleServiceImpl(context, repo)
+    InstrumentCandleBatchWriter writer(JdbcTemplate jdbcTemplate) {
+        new InstrumentCandleBatchWriter(jdbcTemplate, 2)
+    }
+
+    @Bean
+    InstrumentCandleRollup rollup(InstrumentCandleRepository repo, InstrumentCandleBatchWriter writer) {
+        new InstrumentCandleRollup(repo, writer)
+    }
+
+    @Bean
+    RecentCandleCache recentCandles(InstrumentCandleRepository repo) {
+        new RecentCandleCache(repo, 1)
+    }
+
+    @Bean
+    AvailableDaysIndex availableDays(InstrumentCandleRepository repo) {
+        new AvailableDaysIndex(repo)
+    }
+
+    @Bean
+    InstrumentCandleService service(Context context, InstrumentCandleRepository repo, InstrumentCandleBatchWriter writer,
+                                    InstrumentCandleRollup rollup, RecentCandleCache recentCandles,
+                                    AvailableDaysIndex availableDays) {
+        new InstrumentCandleServiceImpl(context, repo, writer, rollup, recentCandles, availableDays)
     }
 }
@@ -9,6 +9,7 @@ import forex.broker.Context
 import forex.broker.LiveTraders
 import forex.broker.MarketOrderRequest
 import forex.broker.OrderService
+import forex.broker.PricingSnapshot
 import forex.broker.Orders
 import forex.broker.Quote
 import forex.broker.StopLossDetails
@@ -26,6 +27,9 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.time.LocalDateTime
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 import static forex.broker.OrderService.createMarketOrderRequest
 import static forex.market.Instrument.EURUSD
@@ -34,6 +38,8 @@ import static java.time.Month.APRIL
 import static java.time.Month.AUGUST
 import static java.time.Month.NOVEMBER
 import static java.time.Month.SEPTEMBER
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+import static java.util.concurrent.TimeUnit.SECONDS
 
 class BrokerSpec extends Specification {
 
@@ -208,13 +214,13 @@ class BrokerSpec extends Specification {
         }
 
         and: 'the response had an exclusive end'
-        actual.keySet() == [
+        actual.asMap().keySet() == [
                 LocalDateTime.of(2018, AUGUST, 24, 16, 0, 0),
                 LocalDateTime.of(2018, AUGUST, 31, 16, 0, 0)
         ] as Set
 
         and: 'the values were correct'
-        actual.values() as Set == [
+        actual.asMap().values() as Set == [
                 new CandlestickData(15L, 25L, 10L, 12L),
                 new CandlestickData(16L, 26L, 11L, 13L)
         ] as Set
@@ -260,13 +266,13 @@ class BrokerSpec extends Specification {
         }
 
         and: 'the response had an exclusive end'
-        actual.keySet() == [
+        actual.asMap().keySet() == [
                 LocalDateTime.of(2018, SEPTEMBER, 5, 16, 0, 0),
                 LocalDateTime.of(2018, SEPTEMBER, 6, 16, 0, 0)
         ] as Set
 
         and: 'values were correct'
-        actual.values() as Set == [
+        actual.asMap().values() as Set == [
                 new CandlestickData(15L, 25L, 10L, 12L),
                 new CandlestickData(16L, 26L, 11L, 13L)
         ] as Set
@@ -311,13 +317,13 @@ class BrokerSpec extends Specification {
         }
 
         and: 'the response had an exclusive end'
-        actual.keySet() == [
+        actual.asMap().keySet() == [
                 LocalDateTime.of(2018, SEPTEMBER, 5, 0, 0, 0),
                 LocalDateTime.of(2018, SEPTEMBER, 5, 4, 0, 0)
         ] as Set
 
         and: 'values were correct'
-        actual.values() as Set == [
+        actual.asMap().values() as Set == [
                 new CandlestickData(15L, 25L, 10L, 12L),
                 new CandlestickData(16L, 26L, 11L, 13L)
         ] as Set
@@ -348,4 +354,122 @@ class BrokerSpec extends Specification {
         1 * trader.processUpdates(broker)
     }
 
+    def 'should isolate trader failures and stop waiting for traders past the deadline when processing in parallel'() {
+
+        def clock = Mock(MarketTime)
+        clock.now() >> LocalDateTime.of(2018, SEPTEMBER, 14, 12, 0)
+
+        def failing = Mock(ForexTrader)
+        failing.accountNumber >> '1'
+        def slow = Mock(ForexTrader)
+        slow.accountNumber >> '2'
+        def healthy = Mock(ForexTrader)
+        healthy.accountNumber >> '3'
+
+        def release = new CountDownLatch(1)
+        def interrupted = new AtomicBoolean()
+
+        def broker = new Broker(clock, new LiveTraders([failing, slow, healthy]), instrumentHistoryService,
+                instrumentDataRetriever, orderService, new PricingSnapshot(clock, 0L), 3, 200)
+
+        when: 'the broker is processing updates'
+        def started = System.nanoTime()
+        broker.processUpdates()
+        def elapsedMillis = NANOSECONDS.toMillis(System.nanoTime() - started)
+
+        then: 'every trader is processed'
+        1 * failing.processUpdates(broker) >> { throw new IllegalStateException('Failed!') }
+        1 * slow.processUpdates(broker) >> {
+            try {
+                release.await(10, SECONDS)
+            } catch (InterruptedException e) {
+                interrupted.set(true)
+            }
+        }
+        1 * healthy.processUpdates(broker)
+
+        and: 'the broker stopped waiting at the deadline, without interrupting the slow trader'
+        elapsedMillis < 5_000
+        !interrupted.get()
+
+        when: 'the next interval starts while the slow trader is still processing'
+        broker.processUpdates()
+
+        then: 'the slow trader is skipped, and the others are processed'
+        1 * failing.processUpdates(broker)
+        0 * slow.processUpdates(broker)
+        1 * healthy.processUpdates(broker)
+
+        cleanup:
+        release.countDown()
+        broker.shutdown()
+    }
+
+    def 'should only process the trader for a woken account'() {
+
+        def clock = Mock(MarketTime)
+        clock.now() >> LocalDateTime.of(2018, SEPTEMBER, 14, 12, 0)
+
+        def woken = Mock(ForexTrader)
+        woken.accountNumber >> '1'
+        def other = Mock(ForexTrader)
+        other.accountNumber >> '2'
+
+        def broker = new Broker(clock, new LiveTraders([woken, other]), instrumentHistoryService, instrumentDataRetriever, orderService)
+
+        when: 'a transaction wakes an account'
+        broker.processUpdates('1')
+
+        then: 'only its trader is processed, without retrieving candles'
+        1 * woken.processUpdates(broker)
+        0 * other.processUpdates(_)
+        0 * instrumentDataRetriever.retrieveClosedCandles()
+    }
+
+    def 'should coalesce wake ups for an account that is already waiting'() {
+
+        def clock = Mock(MarketTime)
+        clock.now() >> LocalDateTime.of(2018, SEPTEMBER, 14, 12, 0)
+
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def busyUpdates = new AtomicInteger()
+        def busy = Mock(ForexTrader)
+        busy.accountNumber >> '1'
+        busy.processUpdates(_) >> {
+            started.countDown()
+            release.await(5, SECONDS)
+            busyUpdates.incrementAndGet()
+        }
+
+        def waitingUpdates = new AtomicInteger()
+        def waiting = Mock(ForexTrader)
+        waiting.accountNumber >> '2'
+        waiting.processUpdates(_) >> { waitingUpdates.incrementAndGet() }
+
+        def traders = new LiveTraders([busy, waiting])
+        def broker = new Broker(clock, traders, instrumentHistoryService, instrumentDataRetriever, orderService)
+        def streams = new LiveStreams(broker, traders, new PricingSnapshot(clock, 0L), new OandaProperties(api: new OandaProperties.Api()))
+
+        when: 'an account is woken several times while the wake ups are busy with another account'
+        streams.wake('1')
+        started.await(5, SECONDS)
+        3.times { streams.wake('2') }
+        release.countDown()
+
+        and: 'the busy account is woken again, which runs after any queued wake ups'
+        streams.wake('1')
+        def deadline = System.currentTimeMillis() + 5_000
+        while (busyUpdates.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+
+        then: 'the waiting account was only processed once'
+        busyUpdates.get() == 2
+        waitingUpdates.get() == 1
+
+        cleanup:
+        streams.stop()
+    }
+
 }
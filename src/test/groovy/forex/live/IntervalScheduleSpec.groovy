@@ -0,0 +1,69 @@
+package forex.live
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class IntervalScheduleSpec extends Specification {
+
+    static final long MINUTE_BOUNDARY = 1_536_926_400_000L
+
+    long now = MINUTE_BOUNDARY + 10_000
+
+    def schedule = new IntervalSchedule({ now }, 60_000, 500)
+
+    def 'should wait for the next minute boundary plus the offset'() {
+        expect:
+        schedule.millisUntilNext() == 50_500
+    }
+
+    def 'should not drift later by the time spent processing'() {
+
+        schedule.millisUntilNext()
+
+        when: 'the interval starts late and processing takes three seconds'
+        now = MINUTE_BOUNDARY + 60_700
+        schedule.fired()
+        now += 3_000
+
+        then: 'the wait ends on the next boundary'
+        schedule.millisUntilNext() == 60_500 + 60_000 - (60_700 + 3_000)
+    }
+
+    def 'should skip boundaries missed by processing that overran'() {
+
+        schedule.millisUntilNext()
+
+        when: 'processing runs past two more boundaries'
+        now = MINUTE_BOUNDARY + 60_500
+        schedule.fired()
+        now += 130_000
+
+        then: 'the wait is for the next boundary, rather than running the missed intervals back to back'
+        schedule.millisUntilNext() == 240_500 - 190_500
+    }
+
+    def 'should not fire twice for the same boundary when the wait ends early'() {
+
+        schedule.millisUntilNext()
+
+        when: 'the interval starts before its boundary'
+        now = MINUTE_BOUNDARY + 60_495
+        schedule.fired()
+
+        then: 'the following boundary is next'
+        schedule.millisUntilNext() == 60_005
+    }
+
+    @Unroll
+    def 'should only allow intervals aligned with minutes: #intervalMillis'() {
+
+        when:
+        new IntervalSchedule({ now }, intervalMillis, 0)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        intervalMillis << [0L, 7_000L, 90_000L]
+    }
+}
@@ -9,6 +9,7 @@ import spock.lang.Unroll
 
 import java.time.LocalDateTime
 import java.time.Month
+import java.util.concurrent.ExecutorService
 import java.util.function.Function
 
 import static com.google.common.collect.Range.closed
@@ -78,4 +79,37 @@ class LiveInstrumentDataRetrieverSpec extends Specification {
                                                                                              closed(ldt(2018, Month.SEPTEMBER, 13, 19, 52), ldt(2018, Month.SEPTEMBER, 14, 8, 31))]
     }
 
+    def 'should roll up candles in the background without failing the retrieval'() {
+
+        def rollups = Mock(ExecutorService)
+        def retriever = new LiveInstrumentDataRetriever(clock, instrumentCandleService, null, rollups) {
+            @Override
+            SortedSet<Range<LocalDateTime>> determineRetrievalRanges() {
+                return [] as SortedSet
+            }
+        }
+
+        Runnable rollup = null
+
+        when: 'closed candles are retrieved twice before the roll up runs'
+        retriever.retrieveClosedCandles()
+        retriever.retrieveClosedCandles()
+
+        then: 'a single roll up was queued, without rolling up on the retrieving thread'
+        1 * rollups.execute(_) >> { Runnable it -> rollup = it }
+        0 * instrumentCandleService.rollupCandles()
+
+        when: 'the roll up fails'
+        rollup.run()
+
+        then: 'the failure does not escape'
+        1 * instrumentCandleService.rollupCandles() >> { throw new IllegalStateException('Deadlock found') }
+        noExceptionThrown()
+
+        when: 'closed candles are retrieved again'
+        retriever.retrieveClosedCandles()
+
+        then: 'another roll up was queued'
+        1 * rollups.execute(_)
+    }
 }
@@ -0,0 +1,91 @@
+package forex.live.oanda
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import forex.broker.Price
+import forex.broker.StreamSubscription
+import spock.lang.Specification
+
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+import static forex.market.Instrument.EURUSD
+import static forex.market.Instrument.USDEUR
+import static java.nio.charset.StandardCharsets.UTF_8
+import static java.util.concurrent.TimeUnit.SECONDS
+
+class OandaStreamingSpec extends Specification {
+
+    static final String PRICE = '{"type":"PRICE","time":"2018-09-07T13:34:22.261427818Z",' +
+            '"bids":[{"price":"1.15775","liquidity":10000000}],"asks":[{"price":"1.15787","liquidity":10000000}],' +
+            '"closeoutBid":"1.15760","closeoutAsk":"1.15802","status":"tradeable","tradeable":true,"instrument":"EUR_USD"}'
+
+    HttpServer server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+    StreamSubscription subscription
+
+    def cleanup() {
+        subscription?.close()
+        server.stop(0)
+    }
+
+    def 'should stream prices for the requested instruments, dropping heartbeats'() {
+
+        def paths = new LinkedBlockingQueue<String>()
+        def tokens = new LinkedBlockingQueue<String>()
+        serve('/v3/accounts/1/pricing/stream') { HttpExchange exchange ->
+            paths.add(exchange.requestURI.toString())
+            tokens.add(exchange.requestHeaders.getFirst('Authorization'))
+
+            ['{"type":"HEARTBEAT","time":"2018-09-07T13:34:20.000000000Z"}', PRICE]
+        }
+
+        def prices = new LinkedBlockingQueue<Price>()
+
+        when: 'prices are streamed for an instrument and its inverse'
+        subscription = streaming().prices('1', [EURUSD, USDEUR] as Set, { prices.add(it) })
+
+        then: 'the broker instrument was requested once'
+        paths.poll(5, SECONDS) == '/v3/accounts/1/pricing/stream?instruments=EUR_USD'
+        tokens.poll(5, SECONDS) == 'Bearer token'
+
+        and: 'each requested instrument was priced from the streamed price'
+        [prices.poll(5, SECONDS), prices.poll(5, SECONDS)] as Set == [
+                new Price(EURUSD, 115775L, 115787L),
+                new Price(USDEUR, 86365L, 86374L)
+        ] as Set
+    }
+
+    def 'should stream transaction ids, reconnecting when the stream ends'() {
+
+        def connections = new AtomicInteger()
+        serve('/v3/accounts/1/transactions/stream') { HttpExchange exchange ->
+            int connection = connections.incrementAndGet()
+
+            ['{"type":"HEARTBEAT","lastTransactionID":"6","time":"2018-09-07T13:34:20.000000000Z"}',
+             "{\"id\":\"${6 + connection}\",\"type\":\"ORDER_FILL\",\"accountID\":\"1\"}".toString()]
+        }
+
+        def transactionIDs = new LinkedBlockingQueue<String>()
+
+        when: 'transactions are streamed'
+        subscription = streaming().transactions('1', { transactionIDs.add(it) })
+
+        then: 'transactions from both connections were received'
+        transactionIDs.poll(5, SECONDS) == '7'
+        transactionIDs.poll(5, SECONDS) == '8'
+    }
+
+    private OandaStreaming streaming() {
+        new OandaStreaming("http://localhost:${server.address.port}", 'token', 10)
+    }
+
+    private void serve(String path, Closure<List<String>> lines) {
+        server.createContext(path) { HttpExchange exchange ->
+            def body = lines(exchange).join('\n').getBytes(UTF_8)
+
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.withStream { it.write(body) }
+        }
+        server.start()
+    }
+}
@@ -1,5 +1,6 @@
 package forex.market
 
+import forex.broker.LimitOrder
 import forex.broker.MarketOrder
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.SpringBootConfiguration
@@ -39,7 +40,43 @@ class AccountOrderServiceImplSpec extends Specification {
         retrieved == persisted
     }
 
+    def 'should overwrite an existing order on upsert'() {
+
+        def entity = new MarketOrder('1007', '101-001-1775714-001', ldt(2018, SEPTEMBER, 7, 10, 56, 46), null, null, EURUSD, 7)
+        def filled = new MarketOrder('1007', '101-001-1775714-001', ldt(2018, SEPTEMBER, 7, 10, 56, 46), null, ldt(2018, SEPTEMBER, 7, 10, 56, 47), EURUSD, 7)
+
+        when: 'an order is saved, then saved again once filled'
+        def saved = service.upsert(entity)
+        def overwritten = service.upsert(filled)
+        def retrieved = service.findMarketOrder(entity.orderId, entity.accountId)
+
+        then: 'the filled order was retrieved'
+        retrieved == filled
+
+        and: 'the overwritten order has the existing id'
+        overwritten.id == saved.id
+        retrieved.id == saved.id
+    }
+
+    def 'should find pending orders of every type in one query'() {
+
+        def accountId = '101-001-1775714-002'
+        def pendingMarket = new MarketOrder('2001', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), null, null, EURUSD, 7)
+        def filledMarket = new MarketOrder('2002', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), null, ldt(2018, SEPTEMBER, 7, 10, 56, 47), EURUSD, 7)
+        def pendingLimit = new LimitOrder('2003', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), null, null, EURUSD, 7, 116000L)
+        def canceledLimit = new LimitOrder('2004', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), ldt(2018, SEPTEMBER, 7, 10, 56, 47), null, EURUSD, 7, 116000L)
+
+        when: 'orders of different types are saved'
+        [pendingMarket, filledMarket, pendingLimit, canceledLimit].each { service.upsert(it) }
+        def pending = service.findPendingOrders(accountId)
+
+        then: 'only the pending orders were found, by type'
+        pending.marketOrders as Set == [pendingMarket] as Set
+        pending.limitOrders as Set == [pendingLimit] as Set
+        pending.takeProfits.empty
+        pending.stopLosses.empty
+    }
+
     // TODO: Test for saveIfNotExists not overwriting existing
-    // TODO: Test for upsert overwriting existing
 
 }
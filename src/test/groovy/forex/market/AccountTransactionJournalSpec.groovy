@@ -0,0 +1,163 @@
+package forex.market
+
+import forex.broker.MarketOrderTransaction
+import forex.broker.OrderFillTransaction
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.SpringBootConfiguration
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.context.annotation.Import
+import org.springframework.dao.DataIntegrityViolationException
+import org.springframework.jdbc.core.JdbcTemplate
+import spock.lang.Specification
+
+import static forex.market.Instrument.EURUSD
+import static java.time.LocalDateTime.of as ldt
+import static java.time.Month.SEPTEMBER
+
+@SpringBootTest
+class AccountTransactionJournalSpec extends Specification {
+
+    @SpringBootConfiguration
+    @Import(PersistenceConfig.class)
+    static class SpecConfig {
+    }
+
+    @Autowired
+    JdbcTemplate jdbcTemplate
+
+    @Autowired
+    MarketOrderTransactionRepository marketOrderRepo
+
+    @Autowired
+    OrderFillTransactionRepository orderFillRepo
+
+    def 'should write queued transactions in batches, ignoring duplicates'() {
+
+        def accountId = '101-001-1775714-001'
+        def order = new MarketOrderTransaction('3001', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), EURUSD, 7)
+        def fill = new OrderFillTransaction('3002', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), '3001')
+
+        def journal = new AccountTransactionJournal(jdbcTemplate, 1, 60_000)
+
+        when: 'transactions are appended, one of them twice'
+        def appended = [order, fill, order].collect { journal.append(it) }
+
+        then: 'the duplicate was not queued'
+        appended == [true, true, false]
+
+        and: 'nothing was written yet'
+        marketOrderRepo.findOneByTransactionIdAndAccountId('3001', accountId) == null
+
+        when: 'the journal is flushed'
+        def written = journal.flush()
+
+        then: 'each transaction was written'
+        written == 2
+        marketOrderRepo.findOneByTransactionIdAndAccountId('3001', accountId) == order
+        orderFillRepo.findOneByTransactionIdAndAccountId('3002', accountId) == fill
+
+        cleanup:
+        journal.close()
+    }
+
+    def 'should write queued transactions on close'() {
+
+        def accountId = '101-001-1775714-001'
+        def fill = new OrderFillTransaction('3003', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), '3001')
+
+        def journal = new AccountTransactionJournal(jdbcTemplate, 100, 60_000)
+
+        when: 'a transaction is appended and the journal closed'
+        journal.append(fill)
+        journal.close()
+
+        then: 'the transaction was written'
+        orderFillRepo.findOneByTransactionIdAndAccountId('3003', accountId) == fill
+    }
+
+    def 'should ignore transactions that were already written'() {
+
+        def accountId = '101-001-1775714-001'
+        def fill = new OrderFillTransaction('3004', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), '3001')
+
+        when: 'the same transaction is written by two journals'
+        [new AccountTransactionJournal(jdbcTemplate, 100, 60_000), new AccountTransactionJournal(jdbcTemplate, 100, 60_000)].each {
+            it.append(fill)
+            it.close()
+        }
+
+        then: 'it was only stored once'
+        orderFillRepo.findAll().findAll { it.transactionId == '3004' } == [fill]
+    }
+
+    def 'should keep transactions queued when a batch fails'() {
+
+        def accountId = '101-001-1775714-001'
+        def fill = new OrderFillTransaction('3005', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), '3001')
+
+        def failures = 1
+        def failingOnce = new JdbcTemplate(jdbcTemplate.dataSource) {
+            @Override
+            int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (failures-- > 0) {
+                    throw new DataIntegrityViolationException('Cannot add or update a child row: a foreign key constraint fails')
+                }
+                return super.batchUpdate(sql, batchArgs)
+            }
+        }
+
+        def journal = new AccountTransactionJournal(failingOnce, 100, 60_000)
+        journal.append(fill)
+
+        when: 'the batch fails'
+        def written = journal.flush()
+
+        then: 'nothing was counted as written'
+        written == 0
+        orderFillRepo.findOneByTransactionIdAndAccountId('3005', accountId) == null
+
+        when: 'the journal is flushed again'
+        written = journal.flush()
+
+        then: 'the transaction was retried'
+        written == 1
+        orderFillRepo.findOneByTransactionIdAndAccountId('3005', accountId) == fill
+
+        cleanup:
+        journal.close()
+    }
+
+    def 'should write transactions one at a time and drop those that still fail after the retries'() {
+
+        def accountId = '101-001-1775714-001'
+        def fill = new OrderFillTransaction('3006', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), '3001')
+        def invalid = new OrderFillTransaction('3007', accountId, ldt(2018, SEPTEMBER, 7, 10, 56, 46), '3001')
+
+        def rejectingInvalid = new JdbcTemplate(jdbcTemplate.dataSource) {
+            @Override
+            int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                if (batchArgs.any { it[0] == '3007' }) {
+                    throw new DataIntegrityViolationException('Cannot add or update a child row: a foreign key constraint fails')
+                }
+                return super.batchUpdate(sql, batchArgs)
+            }
+        }
+
+        def journal = new AccountTransactionJournal(rejectingInvalid, 100, 60_000)
+        [fill, invalid].each { journal.append(it) }
+
+        when: 'the batch fails until the retries are exhausted'
+        def written = (1..3).collect { journal.flush() }
+
+        then: 'the valid transaction was written on its own once the retries were exhausted'
+        written == [0, 0, 1]
+        orderFillRepo.findOneByTransactionIdAndAccountId('3006', accountId) == fill
+
+        and: 'the invalid transaction was dropped'
+        orderFillRepo.findOneByTransactionIdAndAccountId('3007', accountId) == null
+        journal.flush() == 0
+
+        cleanup:
+        journal.close()
+    }
+}
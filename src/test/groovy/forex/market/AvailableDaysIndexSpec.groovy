@@ -0,0 +1,57 @@
+package forex.market
+
+import spock.lang.Specification
+
+import java.time.LocalDate
+
+import static forex.broker.CandlestickGranularity.M1
+import static forex.broker.CandlestickGranularity.M5
+import static forex.market.Instrument.EURUSD
+import static java.time.LocalDateTime.of as ldt
+import static java.time.Month.DECEMBER
+import static java.time.Month.JANUARY
+import static java.time.Month.SEPTEMBER
+
+class AvailableDaysIndexSpec extends Specification {
+
+    def repo = Mock(InstrumentCandleRepository)
+    def index = new AvailableDaysIndex(repo)
+
+    def 'should load a year of available days once'() {
+
+        when:
+        def first = index.isAvailable(EURUSD, LocalDate.of(2017, SEPTEMBER, 11))
+        def second = index.isAvailable(EURUSD, LocalDate.of(2017, SEPTEMBER, 12))
+        def days = index.getAvailableDays(EURUSD, 2017)
+
+        then:
+        1 * repo.findAvailableDays(EURUSD, 2017) >> ([LocalDate.of(2017, JANUARY, 1), LocalDate.of(2017, SEPTEMBER, 11), LocalDate.of(2017, DECEMBER, 31)] as Set)
+        first
+        !second
+        days == [LocalDate.of(2017, JANUARY, 1), LocalDate.of(2017, SEPTEMBER, 11), LocalDate.of(2017, DECEMBER, 31)] as TreeSet
+    }
+
+    def 'should add the days of stored one minute candles to loaded years'() {
+
+        repo.findAvailableDays(EURUSD, 2017) >> ([] as Set)
+        index.isAvailable(EURUSD, LocalDate.of(2017, SEPTEMBER, 11))
+
+        when:
+        index.stored([
+                new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 11, 8, 30), granularity: M1)),
+                new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 12, 8, 30), granularity: M5)),
+                new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2018, JANUARY, 2, 8, 30), granularity: M1))
+        ])
+
+        then:
+        index.isAvailable(EURUSD, LocalDate.of(2017, SEPTEMBER, 11))
+        !index.isAvailable(EURUSD, LocalDate.of(2017, SEPTEMBER, 12))
+
+        when: 'a year that was not loaded is checked'
+        def available = index.isAvailable(EURUSD, LocalDate.of(2018, JANUARY, 2))
+
+        then: 'it is loaded from the database'
+        1 * repo.findAvailableDays(EURUSD, 2018) >> ([LocalDate.of(2018, JANUARY, 2)] as Set)
+        available
+    }
+}
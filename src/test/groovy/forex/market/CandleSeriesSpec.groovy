@@ -0,0 +1,132 @@
+package forex.market
+
+import forex.broker.CandlestickData
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.LocalDateTime
+
+import static java.time.LocalDateTime.of as ldt
+import static java.time.Month.JANUARY
+
+class CandleSeriesSpec extends Specification {
+
+    static final TreeMap<LocalDateTime, CandlestickData> candles = [
+            (ldt(2017, JANUARY, 2, 17, 0)): new CandlestickData(104684L, 104687L, 104662L, 104680L),
+            (ldt(2017, JANUARY, 2, 17, 1)): new CandlestickData(104680L, 104707L, 104675L, 104688L),
+            (ldt(2017, JANUARY, 2, 17, 2)): new CandlestickData(104690L, 104711L, 104674L, 104674L),
+            (ldt(2017, JANUARY, 2, 17, 4)): new CandlestickData(104674L, 104674L, 104646L, 104652L),
+            (ldt(2017, JANUARY, 3, 9, 0)) : new CandlestickData(104656L, 104688L, 104656L, 104671L)
+    ] as TreeMap
+
+    def 'should expose the same entries as the source map'() {
+
+        def series = CandleSeries.from(candles)
+
+        expect:
+        series.size() == 5
+        series.asMap() == candles
+        series.asMap().firstKey() == candles.firstKey()
+        series.asMap().lastEntry() == candles.lastEntry()
+        series.get(ldt(2017, JANUARY, 2, 17, 2)) == new CandlestickData(104690L, 104711L, 104674L, 104674L)
+        series.get(ldt(2017, JANUARY, 2, 17, 3)) == null
+    }
+
+    @Unroll
+    def 'should slice like a navigable map: #from (#fromInclusive) - #to (#toInclusive)'() {
+
+        def series = CandleSeries.from(candles)
+
+        expect:
+        series.subSeries(from, fromInclusive, to, toInclusive).asMap() == candles.subMap(from, fromInclusive, to, toInclusive)
+        series.asMap().subMap(from, fromInclusive, to, toInclusive) == candles.subMap(from, fromInclusive, to, toInclusive)
+
+        where:
+        from                               | fromInclusive | to                                 | toInclusive
+        ldt(2017, JANUARY, 2, 17, 0)       | true          | ldt(2017, JANUARY, 2, 17, 2)       | true
+        ldt(2017, JANUARY, 2, 17, 0)       | false         | ldt(2017, JANUARY, 2, 17, 2)       | false
+        ldt(2017, JANUARY, 2, 17, 3)       | true          | ldt(2017, JANUARY, 3, 9, 0)        | false
+        ldt(2017, JANUARY, 2, 17, 0, 30)   | true          | ldt(2017, JANUARY, 2, 17, 4, 30)   | true
+        ldt(2017, JANUARY, 1, 0, 0)        | true          | ldt(2017, JANUARY, 31, 0, 0)       | true
+        ldt(2017, JANUARY, 5, 0, 0)        | true          | ldt(2017, JANUARY, 6, 0, 0)        | true
+    }
+
+    @Unroll
+    def 'should navigate like a navigable map: #key'() {
+
+        def view = CandleSeries.from(candles).asMap()
+
+        expect:
+        view.lowerKey(key) == candles.lowerKey(key)
+        view.floorKey(key) == candles.floorKey(key)
+        view.ceilingKey(key) == candles.ceilingKey(key)
+        view.higherKey(key) == candles.higherKey(key)
+        view.headMap(key, true) == candles.headMap(key, true)
+        view.tailMap(key, false) == candles.tailMap(key, false)
+
+        where:
+        key << [
+                ldt(2017, JANUARY, 1, 0, 0),
+                ldt(2017, JANUARY, 2, 17, 0),
+                ldt(2017, JANUARY, 2, 17, 3),
+                ldt(2017, JANUARY, 2, 17, 1, 30),
+                ldt(2017, JANUARY, 3, 9, 0),
+                ldt(2017, JANUARY, 4, 0, 0)
+        ]
+    }
+
+    @Unroll
+    def 'should view the last #count candles'() {
+
+        def series = CandleSeries.from(candles)
+
+        expect:
+        series.last(count).asMap() == candles.descendingMap().entrySet().take(count).collectEntries { [(it.key): it.value] }
+
+        where:
+        count << [0, 1, 2, 5, 10]
+    }
+
+    def 'should aggregate the same as candlestick data'() {
+
+        def series = CandleSeries.from(candles)
+
+        expect:
+        series.aggregate() == CandlestickData.aggregate(candles.values())
+        series.subSeries(ldt(2017, JANUARY, 2, 17, 1), true, ldt(2017, JANUARY, 2, 17, 4), true).aggregate() ==
+                CandlestickData.aggregate(candles.subMap(ldt(2017, JANUARY, 2, 17, 1), true, ldt(2017, JANUARY, 2, 17, 4), true).values())
+    }
+
+    def 'should invert every candle'() {
+
+        def series = CandleSeries.from(candles)
+
+        expect:
+        series.inverse().asMap() == candles.collectEntries { time, candle -> [(time): CandlestickData.inverse(candle)] }
+    }
+
+    def 'should sort out of order candles and keep the last candle added for a time'() {
+
+        def builder = CandleSeries.builder()
+        builder.add(ldt(2017, JANUARY, 2, 17, 2), 3L, 3L, 3L, 3L)
+        builder.add(ldt(2017, JANUARY, 2, 17, 0), 1L, 1L, 1L, 1L)
+        builder.add(ldt(2017, JANUARY, 2, 17, 2), 4L, 4L, 4L, 4L)
+        builder.add(ldt(2017, JANUARY, 2, 17, 1), 2L, 2L, 2L, 2L)
+
+        expect:
+        builder.build().asMap() == [
+                (ldt(2017, JANUARY, 2, 17, 0)): new CandlestickData(1L, 1L, 1L, 1L),
+                (ldt(2017, JANUARY, 2, 17, 1)): new CandlestickData(2L, 2L, 2L, 2L),
+                (ldt(2017, JANUARY, 2, 17, 2)): new CandlestickData(4L, 4L, 4L, 4L)
+        ]
+    }
+
+    def 'should determine the available days'() {
+
+        expect:
+        CandleSeries.from(candles).availableDays() == [
+                LocalDateTime.of(2017, JANUARY, 2, 0, 0).toLocalDate(),
+                LocalDateTime.of(2017, JANUARY, 3, 0, 0).toLocalDate()
+        ] as TreeSet
+    }
+}
@@ -201,4 +201,37 @@ class CandleTimeFrameSpec extends Specification {
         ONE_MINUTE     | of(2016, JANUARY, 3, 16, 0, 0)   | of(2016, JANUARY, 3, 15, 59, 0)// First 30s of trading 1m
         ONE_MINUTE     | of(2016, JANUARY, 3, 16, 57, 30) | of(2016, JANUARY, 3, 16, 56, 0)// Halfway into trading 1m
     }
+
+    def 'should aggregate every time frame in one pass the same as aggregating each time frame on its own'() {
+
+        def random = new Random(1)
+        def builder = CandleSeries.builder()
+        def time = of(2016, DECEMBER, 28, 9, 13)
+        40000.times {
+            def open = 100000L + random.nextInt(1000)
+            def close = 100000L + random.nextInt(1000)
+            builder.add(time, open, Math.max(open, close) + random.nextInt(50), Math.min(open, close) - random.nextInt(50), close)
+            time = time.plusMinutes(1 + random.nextInt(3))
+        }
+        def oneMinute = builder.build()
+
+        when:
+        def aggregates = CandleTimeFrame.aggregateAll(oneMinute)
+
+        then:
+        aggregates.keySet() == ((CandleTimeFrame.values() as List) - ONE_MINUTE) as Set
+        aggregates.each { timeFrame, candles ->
+            def expected = new TreeMap()
+            for (def start = timeFrame.calculateStart(oneMinute.time(0)); !start.isAfter(oneMinute.time(oneMinute.size() - 1));
+                 start = timeFrame.nextCandle(start)) {
+                def slot = oneMinute.subSeries(start, true, timeFrame.nextCandle(start), false)
+                if (!slot.isEmpty()) {
+                    expected.put(start, slot.aggregate())
+                }
+            }
+
+            assert candles.asMap() == expected
+            assert timeFrame.aggregate(oneMinute) == candles
+        }
+    }
 }
@@ -1,8 +1,12 @@
 package forex.market
 
+import forex.broker.RequestException
 import forex.market.DataRetriever.RequestHandler
 import spock.lang.Specification
 
+import java.util.concurrent.atomic.AtomicInteger
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
 import static java.util.concurrent.TimeUnit.SECONDS
 
 class DataRetrieverSpec extends Specification {
@@ -46,4 +50,112 @@ class DataRetrieverSpec extends Specification {
         and: 'no throttling occurs'
         0 * clock.sleep(_, _)
     }
+
+    def 'should handle rate limited responses in request order while limiting concurrent requests'() {
+
+        def clock = Mock(MarketTime)
+        def inFlight = new AtomicInteger()
+        def maxInFlight = new AtomicInteger()
+        def handler = { String request ->
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math.&max)
+            Thread.sleep(5)
+            inFlight.decrementAndGet()
+            return request.replace('request', 'response')
+        } as RequestHandler<String, String>
+
+        def service = new DataRetriever.Builder<String, String>(clock, handler)
+                .withRateLimiter(new TokenBucket(clock, TokenBucketSpec.ticker(0L), 10, 10), 1)
+                .withConcurrentRequests(2)
+                .build()
+
+        def requests = (1..8).collect { "request$it".toString() }
+        def handled = []
+
+        when: 'the requests are retrieved'
+        def actual = service.retrieve(requests, { handled << it } as DataRetriever.ResponseHandler<String>)
+
+        then: 'responses are handled in request order'
+        handled == (1..8).collect { "response$it".toString() }
+        actual == 8
+
+        and: 'no more than the concurrent requests were in flight'
+        maxInFlight.get() <= 2
+
+        and: 'the burst did not need to wait or throttle'
+        0 * clock.sleep(_, _)
+    }
+
+    def 'should retry failed requests with a doubling backoff'() {
+
+        def clock = Mock(MarketTime)
+        def handler = Mock(RequestHandler)
+
+        def service = new DataRetriever.Builder<String, String>(clock, handler)
+                .withRetries(3, 100)
+                .build()
+
+        when: 'a request fails twice'
+        def actual = service.retrieve(['request1'])
+
+        then: 'the first attempt fails'
+        1 * handler.handleRequest('request1') >> { throw new RequestException('Unavailable', null, true) }
+
+        then: 'a backoff is performed'
+        1 * clock.sleep(100, MILLISECONDS)
+
+        then: 'the second attempt fails'
+        1 * handler.handleRequest('request1') >> { throw new RequestException('Unavailable', null, true) }
+
+        then: 'a longer backoff is performed'
+        1 * clock.sleep(200, MILLISECONDS)
+
+        then: 'the third attempt succeeds'
+        1 * handler.handleRequest('request1') >> 'response1'
+        actual == ['response1']
+    }
+
+    def 'should fail once a request runs out of attempts'() {
+
+        def clock = Mock(MarketTime)
+        def handler = { String request ->
+            if (request == 'request2') {
+                throw new RequestException('Unavailable', null, true)
+            }
+            return request
+        } as RequestHandler<String, String>
+
+        def service = new DataRetriever.Builder<String, String>(clock, handler)
+                .withRateLimiter(new TokenBucket(clock, TokenBucketSpec.ticker(0L), 10, 10), 1)
+                .withConcurrentRequests(2)
+                .withRetries(2, 0)
+                .build()
+
+        when: 'a request keeps failing'
+        service.retrieve(['request1', 'request2', 'request3'])
+
+        then: 'the failure is propagated'
+        def e = thrown(RequestException)
+        e.message == 'Unavailable'
+    }
+
+    def 'should not retry failures that are not transient'() {
+
+        def clock = Mock(MarketTime)
+        def handler = Mock(RequestHandler)
+
+        def service = new DataRetriever.Builder<String, String>(clock, handler)
+                .withRetries(3, 100)
+                .build()
+
+        when: 'a request is invalid'
+        service.retrieve(['request1'])
+
+        then: 'it was only attempted once'
+        1 * handler.handleRequest('request1') >> { throw new RequestException('Invalid value specified for \'from\'') }
+        0 * clock.sleep(_, _)
+
+        and: 'the failure is propagated'
+        def e = thrown(RequestException)
+        e.message == "Invalid value specified for 'from'"
+    }
 }
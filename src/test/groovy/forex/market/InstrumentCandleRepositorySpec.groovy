@@ -5,13 +5,11 @@ import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.SpringBootConfiguration
 import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.context.annotation.Import
-import org.springframework.test.context.jdbc.Sql
 import spock.lang.Specification
 
 import java.time.LocalDateTime
 
 import static forex.market.Instrument.EURUSD
-import static java.time.Month.MARCH
 import static java.time.Month.SEPTEMBER
 
 @SpringBootTest
@@ -42,21 +40,28 @@ class InstrumentCandleRepositorySpec extends Specification {
         retrieved == entity
     }
 
-    @Sql('/history/instrument_candle_2017.sql')
-    def 'should be able to query by instrument and time range'() {
-
-        def actual = repo.findByIdInstrumentAndIdTimeBetweenOrderByIdTime(EURUSD, LocalDateTime.of(2017, MARCH, 3, 13, 23),
-                LocalDateTime.of(2017, MARCH, 3, 13, 27))
-                .collect { it.id.time }
-
-        expect:
-        actual == [
-                LocalDateTime.of(2017, MARCH, 3, 13, 23),
-                LocalDateTime.of(2017, MARCH, 3, 13, 24),
-                LocalDateTime.of(2017, MARCH, 3, 13, 25),
-                LocalDateTime.of(2017, MARCH, 3, 13, 26),
-                LocalDateTime.of(2017, MARCH, 3, 13, 27)
-        ]
-    }
+    def 'should stream one minute candles in the range into a series'() {
+
+        def candle = { CandlestickGranularity granularity, LocalDateTime time, long open ->
+            new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: time, granularity: granularity),
+                    midOpen: open, midHigh: open + 20, midLow: open - 10, midClose: open + 10,
+                    openSpread: 14L, highSpread: 14L, lowSpread: 14L, closeSpread: 14L)
+        }
+
+        repo.saveAll([
+                candle(CandlestickGranularity.M1, LocalDateTime.of(2016, SEPTEMBER, 15, 14, 59), 130L),
+                candle(CandlestickGranularity.M1, LocalDateTime.of(2016, SEPTEMBER, 15, 14, 58), 120L),
+                candle(CandlestickGranularity.M1, LocalDateTime.of(2016, SEPTEMBER, 15, 15, 0), 140L),
+                candle(CandlestickGranularity.H1, LocalDateTime.of(2016, SEPTEMBER, 15, 14, 0), 100L)
+        ])
 
+        when: 'the series is read for a range'
+        def series = repo.findSeries(EURUSD, LocalDateTime.of(2016, SEPTEMBER, 15, 14, 0), LocalDateTime.of(2016, SEPTEMBER, 15, 15, 0))
+
+        then: 'only the one minute candles in the range were read, in order'
+        series == CandleSeries.builder()
+                .add(LocalDateTime.of(2016, SEPTEMBER, 15, 14, 58), 120L, 140L, 110L, 130L)
+                .add(LocalDateTime.of(2016, SEPTEMBER, 15, 14, 59), 130L, 150L, 120L, 140L)
+                .build()
+    }
 }
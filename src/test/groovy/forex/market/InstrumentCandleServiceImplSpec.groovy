@@ -19,6 +19,7 @@ import static com.google.common.collect.Range.closed
 import static forex.broker.CandlePrice.ASK
 import static forex.broker.CandlePrice.MID
 import static forex.broker.CandlestickGranularity.M1
+import static forex.broker.CandlestickGranularity.M5
 import static forex.broker.CandlestickGranularity.W
 import static forex.market.Instrument.EURUSD
 import static java.time.LocalDateTime.of as ldt
@@ -38,6 +39,9 @@ class InstrumentCandleServiceImplSpec extends Specification {
     @Autowired
     InstrumentCandleService service
 
+    @Autowired
+    InstrumentCandleBatchWriter writer
+
     def 'should retrieve and store one minute candles for the request range'() {
 
         def start = ldt(2017, SEPTEMBER, 10, 8, 30)
@@ -104,4 +108,45 @@ class InstrumentCandleServiceImplSpec extends Specification {
         ]
     }
 
+    def 'should replace candles that were already stored when storing them again'() {
+
+        def first = (0..2).collect {
+            new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 10, 8, 30 + it, 0), granularity: M1),
+                    midOpen: 1L, midHigh: 1L, midLow: 1L, midClose: 1L, openSpread: 1L, highSpread: 1L, lowSpread: 1L, closeSpread: 1L)
+        }
+        def second = (1..3).collect {
+            new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 10, 8, 30 + it, 0), granularity: M1),
+                    midOpen: 2L, midHigh: 2L, midLow: 2L, midClose: 2L, openSpread: 2L, highSpread: 2L, lowSpread: 2L, closeSpread: 2L)
+        }
+
+        when:
+        writer.upsert(first)
+        writer.upsert(second)
+
+        then:
+        repo.findAll().sort { it.id.time } == [first[0]] + second
+    }
+
+    def 'should roll up the completed candles for the larger time frames'() {
+
+        writer.upsert((0..10).collect {
+            new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 11, 8, 30 + it, 0), granularity: M1),
+                    midOpen: 100L + it, midHigh: 110L + it, midLow: 90L + it, midClose: 101L + it)
+        })
+
+        when:
+        def stored = service.rollupCandles()
+
+        then: 'only the five minute candles that have ended are stored'
+        stored == 2
+        repo.findCandles(M5, EURUSD, ldt(2017, SEPTEMBER, 11, 0, 0), ldt(2017, SEPTEMBER, 12, 0, 0)) == [
+                new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 11, 8, 30, 0), granularity: M5),
+                        midOpen: 100L, midHigh: 114L, midLow: 90L, midClose: 105L),
+                new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 11, 8, 35, 0), granularity: M5),
+                        midOpen: 105L, midHigh: 119L, midLow: 95L, midClose: 110L)
+        ]
+
+        and: 'rolling up again has nothing new to store'
+        service.rollupCandles() == 0
+    }
 }
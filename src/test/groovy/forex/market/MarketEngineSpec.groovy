@@ -8,6 +8,7 @@ import spock.lang.Unroll
 
 import java.time.LocalDateTime
 import java.time.Month
+import java.time.temporal.ChronoUnit
 
 import static Instrument.EURUSD
 import static forex.market.order.Orders.buyLimitOrder
@@ -156,4 +157,111 @@ class MarketEngineSpec extends Specification {
                 clock.now().plusHours(1), clock.now().plusMinutes(1)
         ]
     }
+
+    def 'should only fill the limit orders crossed by the price, in the order they were submitted'() {
+        MarketEngine marketEngine = MarketEngine.create(market, clock)
+        market.isAvailable() >> true
+        market.getPrice(EURUSD) >> 105000L
+
+        given: 'limit orders on both sides of the price'
+        def sellBelow = marketEngine.submit(broker, sellLimitOrder(10, EURUSD, 104000L))
+        def buyBelow = marketEngine.submit(broker, buyLimitOrder(10, EURUSD, 104000L))
+        def buyAbove = marketEngine.submit(broker, buyLimitOrder(10, EURUSD, 106000L))
+        def sellAbove = marketEngine.submit(broker, sellLimitOrder(10, EURUSD, 106000L))
+        def buyAtPrice = marketEngine.submit(broker, buyLimitOrder(10, EURUSD, 105000L))
+
+        def filled = []
+
+        when: 'updates are ran'
+        marketEngine.processUpdates()
+
+        then: 'the crossed orders were filled in submission order'
+        3 * broker.orderFilled(_ as OrderRequest) >> { OrderRequest it -> filled += it.id }
+        filled == [sellBelow.id, buyAbove.id, buyAtPrice.id]
+
+        and: 'the other orders remain open'
+        marketEngine.getOrder(buyBelow).status == OrderStatus.OPEN
+        marketEngine.getOrder(sellAbove).status == OrderStatus.OPEN
+    }
+
+    @Unroll
+    def 'should fill and cancel random orders the same as checking every open order: seed #seed'() {
+        def random = new Random(seed)
+        def testClock = new TestClock(LocalDateTime.of(2017, Month.JANUARY, 17, 12, 31))
+        def instruments = Instrument.values().take(3)
+
+        Map<Instrument, Long> prices = [:]
+        ForexMarket randomMarket = Stub() {
+            isAvailable() >> true
+            getPrice(_ as Instrument) >> { Instrument it -> prices[it] }
+        }
+
+        def actual = []
+        def listener = [
+                orderFilled   : { OrderRequest it -> actual << [it.id, it.status, it.executionPrice.orElse(null)] },
+                orderCancelled: { OrderRequest it -> actual << [it.id, it.status, null] }
+        ] as OrderListener
+
+        MarketEngine marketEngine = MarketEngine.create(randomMarket, testClock)
+        List<OrderRequest> openOrders = []
+
+        expect: 'each update notifies the same orders, in the same order, as checking every open order'
+        200.times {
+            random.nextInt(6).times {
+                def instrument = instruments[random.nextInt(instruments.size())]
+                def limit = 100000L + random.nextInt(2001) - 1000
+                def expiration = random.nextBoolean() ? null : testClock.now().plusMinutes(random.nextInt(6))
+
+                def order
+                switch (random.nextInt(4)) {
+                    case 0:
+                        order = expiration ? buyMarketOrder(10, instrument, expiration) : buyMarketOrder(10, instrument)
+                        break
+                    case 1:
+                        order = expiration ? sellMarketOrder(10, instrument, expiration) : sellMarketOrder(10, instrument)
+                        break
+                    case 2:
+                        order = expiration ? buyLimitOrder(10, instrument, limit, expiration) : buyLimitOrder(10, instrument, limit)
+                        break
+                    default:
+                        order = expiration ? sellLimitOrder(10, instrument, limit, expiration) : sellLimitOrder(10, instrument, limit)
+                }
+                openOrders << marketEngine.submit(listener, order)
+            }
+
+            instruments.each { prices[it] = 100000L + random.nextInt(2001) - 1000 }
+            testClock.advance(1, ChronoUnit.MINUTES)
+
+            actual.clear()
+            marketEngine.processUpdates()
+
+            assert actual == expectedUpdates(openOrders, prices, testClock.now())
+        }
+
+        where:
+        seed << [1, 2, 3]
+    }
+
+    /**
+     * Checks every open order in submission order, removing the ones that were cancelled or filled.
+     */
+    private static List expectedUpdates(List<OrderRequest> openOrders, Map<Instrument, Long> prices, LocalDateTime now) {
+        def expected = []
+        for (Iterator<OrderRequest> iter = openOrders.iterator(); iter.hasNext();) {
+            def order = iter.next()
+
+            if (order.isExpired(now)) {
+                expected << [order.id, OrderStatus.CANCELLED, null]
+            } else {
+                long price = prices[order.instrument]
+                def limit = order.limit()
+                if (limit.present && ((order.buyOrder && price > limit.get()) || (order.sellOrder && price < limit.get()))) {
+                    continue // Limit not met
+                }
+                expected << [order.id, OrderStatus.EXECUTED, price]
+            }
+            iter.remove()
+        }
+        return expected
+    }
 }
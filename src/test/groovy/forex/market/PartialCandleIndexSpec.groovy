@@ -0,0 +1,68 @@
+package forex.market
+
+import forex.broker.CandlestickData
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.LocalDateTime
+
+import static forex.market.CandleTimeFrame.FIVE_MINUTE
+import static forex.market.CandleTimeFrame.FOUR_HOURS
+import static forex.market.CandleTimeFrame.ONE_DAY
+import static forex.market.CandleTimeFrame.ONE_HOUR
+import static forex.market.CandleTimeFrame.ONE_WEEK
+import static java.time.LocalDateTime.of as ldt
+import static java.time.Month.JANUARY
+
+class PartialCandleIndexSpec extends Specification {
+
+    static final CandleSeries candles = CandleSeries.from([
+            (ldt(2017, JANUARY, 2, 17, 0)): new CandlestickData(104684L, 104687L, 104662L, 104680L),
+            (ldt(2017, JANUARY, 2, 17, 1)): new CandlestickData(104680L, 104707L, 104675L, 104688L),
+            (ldt(2017, JANUARY, 2, 17, 2)): new CandlestickData(104690L, 104711L, 104674L, 104674L),
+            (ldt(2017, JANUARY, 2, 17, 3)): new CandlestickData(104670L, 104680L, 104654L, 104680L),
+            (ldt(2017, JANUARY, 2, 17, 4)): new CandlestickData(104674L, 104674L, 104646L, 104652L),
+            (ldt(2017, JANUARY, 2, 17, 5)): new CandlestickData(104656L, 104688L, 104656L, 104671L),
+            (ldt(2017, JANUARY, 2, 17, 7)): new CandlestickData(104671L, 104690L, 104601L, 104612L)
+    ] as TreeMap)
+
+    @Unroll
+    def 'should aggregate the candle in progress from its start through the time: #timeFrame, #time'() {
+
+        def index = PartialCandleIndex.create(timeFrame, candles)
+        def candleStart = timeFrame.calculateStart(time)
+
+        expect:
+        index.partialCandle(candleStart, time) == candles.subSeries(candleStart, true, time, true).aggregate()
+
+        where:
+        timeFrame   | time
+        FIVE_MINUTE | ldt(2017, JANUARY, 2, 17, 3)
+        FIVE_MINUTE | ldt(2017, JANUARY, 2, 17, 6)
+        FIVE_MINUTE | ldt(2017, JANUARY, 2, 17, 9)
+        ONE_HOUR    | ldt(2017, JANUARY, 2, 17, 4)
+        FOUR_HOURS  | ldt(2017, JANUARY, 2, 17, 7)
+        ONE_DAY     | ldt(2017, JANUARY, 3, 9, 0)
+        ONE_WEEK    | ldt(2017, JANUARY, 4, 0, 0)
+    }
+
+    def 'should return null when there are no candles in the candle in progress yet'() {
+
+        def index = PartialCandleIndex.create(FIVE_MINUTE, candles)
+
+        expect:
+        index.partialCandle(ldt(2017, JANUARY, 2, 17, 10), ldt(2017, JANUARY, 2, 17, 12)) == null
+        index.partialCandle(ldt(2017, JANUARY, 2, 16, 55), ldt(2017, JANUARY, 2, 16, 59)) == null
+    }
+
+    def 'should reject a time outside of the candle'() {
+
+        def index = PartialCandleIndex.create(FIVE_MINUTE, candles)
+
+        when:
+        index.partialCandle(ldt(2017, JANUARY, 2, 17, 0), ldt(2017, JANUARY, 2, 17, 5))
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
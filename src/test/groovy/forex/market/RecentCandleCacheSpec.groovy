@@ -0,0 +1,85 @@
+package forex.market
+
+import forex.broker.CandlestickData
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+
+import static forex.broker.CandlestickGranularity.M1
+import static forex.broker.CandlestickGranularity.M5
+import static forex.market.Instrument.EURUSD
+import static java.time.LocalDateTime.of as ldt
+import static java.time.Month.SEPTEMBER
+
+class RecentCandleCacheSpec extends Specification {
+
+    static final LocalDateTime NOW = ldt(2017, SEPTEMBER, 11, 9, 0)
+
+    def repo = Mock(InstrumentCandleRepository)
+    def cache = new RecentCandleCache(repo, Duration.ofMinutes(3))
+
+    def 'should load the instrument from the database on the first read only'() {
+
+        when:
+        def first = cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 58), ldt(2017, SEPTEMBER, 11, 9, 1), NOW)
+
+        then:
+        1 * repo.findCandles(M1, EURUSD, ldt(2017, SEPTEMBER, 11, 8, 58), ldt(2017, SEPTEMBER, 11, 9, 1)) >> [
+                candle(8, 58, 1L), candle(8, 59, 2L), candle(9, 0, 3L)
+        ]
+        first.get().asMap() == [
+                (ldt(2017, SEPTEMBER, 11, 8, 58)): new CandlestickData(1L, 1L, 1L, 1L),
+                (ldt(2017, SEPTEMBER, 11, 8, 59)): new CandlestickData(2L, 2L, 2L, 2L),
+                (ldt(2017, SEPTEMBER, 11, 9, 0)) : new CandlestickData(3L, 3L, 3L, 3L)
+        ]
+
+        when:
+        def second = cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 59), ldt(2017, SEPTEMBER, 11, 9, 0), NOW)
+
+        then:
+        0 * repo.findCandles(*_)
+        second.get().asMap() == [(ldt(2017, SEPTEMBER, 11, 8, 59)): new CandlestickData(2L, 2L, 2L, 2L)]
+    }
+
+    def 'should add stored candles and leave ranges older than the buffer to the database'() {
+
+        repo.findCandles(*_) >> [candle(8, 58, 1L), candle(8, 59, 2L), candle(9, 0, 3L)]
+        cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 58), ldt(2017, SEPTEMBER, 11, 9, 1), NOW)
+
+        when: 'a candle is stored into a full buffer'
+        cache.stored([candle(9, 1, 4L), new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 11, 9, 0), granularity: M5))])
+
+        then: 'the oldest candle is dropped'
+        !cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 58), ldt(2017, SEPTEMBER, 11, 9, 2), NOW).isPresent()
+        cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 59), ldt(2017, SEPTEMBER, 11, 9, 2), NOW).get().asMap() == [
+                (ldt(2017, SEPTEMBER, 11, 8, 59)): new CandlestickData(2L, 2L, 2L, 2L),
+                (ldt(2017, SEPTEMBER, 11, 9, 0)) : new CandlestickData(3L, 3L, 3L, 3L),
+                (ldt(2017, SEPTEMBER, 11, 9, 1)) : new CandlestickData(4L, 4L, 4L, 4L)
+        ]
+    }
+
+    def 'should replace candles stored again and reload when a missing candle is stored'() {
+
+        when:
+        cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 58), ldt(2017, SEPTEMBER, 11, 9, 1), NOW)
+        cache.stored([candle(9, 0, 5L)])
+        def replaced = cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 9, 0), ldt(2017, SEPTEMBER, 11, 9, 1), NOW)
+
+        then:
+        1 * repo.findCandles(*_) >> [candle(8, 58, 1L), candle(9, 0, 3L)]
+        replaced.get().asMap() == [(ldt(2017, SEPTEMBER, 11, 9, 0)): new CandlestickData(5L, 5L, 5L, 5L)]
+
+        when:
+        cache.stored([candle(8, 59, 2L)])
+        cache.oneMinuteCandles(EURUSD, ldt(2017, SEPTEMBER, 11, 8, 58), ldt(2017, SEPTEMBER, 11, 9, 1), NOW)
+
+        then:
+        1 * repo.findCandles(*_) >> []
+    }
+
+    static InstrumentCandle candle(int hour, int minute, long price) {
+        new InstrumentCandle(id: new InstrumentCandleType(instrument: EURUSD, time: ldt(2017, SEPTEMBER, 11, hour, minute), granularity: M1),
+                midOpen: price, midHigh: price, midLow: price, midClose: price)
+    }
+}
@@ -0,0 +1,61 @@
+package forex.market
+
+import com.google.common.base.Ticker
+import spock.lang.Specification
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+
+class TokenBucketSpec extends Specification {
+
+    def clock = Mock(MarketTime)
+
+    def 'should allow a burst up to the capacity without waiting'() {
+
+        def bucket = new TokenBucket(clock, ticker(0L), 10, 3)
+
+        expect:
+        bucket.reserve(1) == 0L
+        bucket.reserve(2) == 0L
+    }
+
+    def 'should wait for permits once the bucket is empty, serving callers in order'() {
+
+        def bucket = new TokenBucket(clock, ticker(0L), 10, 1)
+        bucket.reserve(1)
+
+        expect: 'each caller waits one more permit than the previous'
+        bucket.reserve(1) == MILLISECONDS.toNanos(100)
+        bucket.reserve(1) == MILLISECONDS.toNanos(200)
+        bucket.reserve(2) == MILLISECONDS.toNanos(400)
+    }
+
+    def 'should refill at the rate without exceeding the capacity'() {
+
+        def bucket = new TokenBucket(clock, ticker(0L, 0L, MILLISECONDS.toNanos(150), MILLISECONDS.toNanos(10_000)), 10, 2)
+
+        expect: 'a partial refill leaves a short wait'
+        bucket.reserve(2) == 0L
+        bucket.reserve(2) == MILLISECONDS.toNanos(50)
+
+        and: 'a long pause only refills the capacity'
+        bucket.reserve(3) == MILLISECONDS.toNanos(100)
+    }
+
+    def 'should sleep on the clock when waiting'() {
+
+        def bucket = new TokenBucket(clock, ticker(0L), 10, 1)
+
+        when:
+        bucket.acquire(1)
+        bucket.acquire(1)
+
+        then:
+        1 * clock.sleep(MILLISECONDS.toNanos(100), NANOSECONDS)
+    }
+
+    static Ticker ticker(long... readings) {
+        def remaining = readings.toList()
+        return { -> remaining.size() > 1 ? remaining.remove(0) : remaining[0] } as Ticker
+    }
+}
@@ -0,0 +1,62 @@
+package forex.simulator
+
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static forex.trader.TradingStrategies.OPEN_RANDOM_POSITION
+import static forex.trader.TradingStrategies.SMARTER_MARTINGALE
+import static java.time.Month.DECEMBER
+import static java.time.Month.JANUARY
+
+class BatchSimulatorPropertiesSpec extends Specification {
+
+    def base = new SimulatorProperties(startTime: LocalDateTime.of(2017, JANUARY, 1, 1, 0),
+            endTime: LocalDateTime.of(2017, DECEMBER, 31, 23, 59), accountBalanceDollars: 50, pippeteSpread: 20L,
+            instancesPerTraderType: 2, tradingStrategies: [SMARTER_MARTINGALE, OPEN_RANDOM_POSITION])
+
+    def 'should use the base properties when there are no variations'() {
+
+        when:
+        def scenarios = new BatchSimulatorProperties().scenarios(base)
+
+        then:
+        scenarios.size() == 1
+        scenarios[0].startTime == base.startTime
+        scenarios[0].endTime == base.endTime
+        scenarios[0].pippeteSpread == 20L
+        scenarios[0].accountBalanceDollars == 50
+        scenarios[0].instancesPerTraderType == 2
+        scenarios[0].tradingStrategies == [SMARTER_MARTINGALE, OPEN_RANDOM_POSITION]
+        scenarios[0].scenarioName == '20170101-20171231-spread20-balance50'
+    }
+
+    def 'should create a scenario for every combination of variations'() {
+
+        given:
+        def batch = new BatchSimulatorProperties(pippeteSpreads: [20L, 40L], accountBalanceDollars: [50, 100],
+                tradingStrategies: [SMARTER_MARTINGALE, OPEN_RANDOM_POSITION])
+
+        when:
+        def scenarios = batch.scenarios(base)
+
+        then:
+        scenarios.size() == 8
+        scenarios.collect { [it.pippeteSpread, it.accountBalanceDollars, it.tradingStrategies] } as Set == [
+                [20L, 50, [SMARTER_MARTINGALE]], [20L, 50, [OPEN_RANDOM_POSITION]],
+                [20L, 100, [SMARTER_MARTINGALE]], [20L, 100, [OPEN_RANDOM_POSITION]],
+                [40L, 50, [SMARTER_MARTINGALE]], [40L, 50, [OPEN_RANDOM_POSITION]],
+                [40L, 100, [SMARTER_MARTINGALE]], [40L, 100, [OPEN_RANDOM_POSITION]]
+        ] as Set
+        scenarios*.scenarioName as Set == [
+                '20170101-20171231-spread20-balance50-SMARTER_MARTINGALE', '20170101-20171231-spread20-balance50-OPEN_RANDOM_POSITION',
+                '20170101-20171231-spread20-balance100-SMARTER_MARTINGALE', '20170101-20171231-spread20-balance100-OPEN_RANDOM_POSITION',
+                '20170101-20171231-spread40-balance50-SMARTER_MARTINGALE', '20170101-20171231-spread40-balance50-OPEN_RANDOM_POSITION',
+                '20170101-20171231-spread40-balance100-SMARTER_MARTINGALE', '20170101-20171231-spread40-balance100-OPEN_RANDOM_POSITION'
+        ] as Set
+
+        and: 'the base properties are left alone'
+        base.tradingStrategies == [SMARTER_MARTINGALE, OPEN_RANDOM_POSITION]
+        base.scenarioName == null
+    }
+}
@@ -0,0 +1,75 @@
+package forex.simulator
+
+import forex.broker.CandlestickData
+import forex.market.CandleSeries
+import forex.market.OneMinuteCandleReader
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.time.LocalDateTime
+
+import static forex.market.Instrument.EURUSD
+import static java.time.LocalDateTime.of as ldt
+import static java.time.Month.JANUARY
+
+class BinaryHistoryFileReaderSpec extends Specification {
+
+    static final TreeMap<LocalDateTime, CandlestickData> candles = [
+            (ldt(2017, JANUARY, 2, 17, 0)): new CandlestickData(104684L, 104687L, 104662L, 104680L),
+            (ldt(2017, JANUARY, 2, 17, 1)): new CandlestickData(104680L, 104707L, 104675L, 104688L),
+            (ldt(2017, JANUARY, 2, 17, 4)): new CandlestickData(104674L, 104674L, 104646L, 104652L)
+    ] as TreeMap
+
+    def directory = Files.createTempDirectory('history')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def 'should convert from the source reader once and read the binary file afterwards'() {
+
+        OneMinuteCandleReader source = Mock()
+        def reader = new BinaryHistoryFileReader(directory, source)
+
+        when: 'the binary file does not exist yet'
+        def converted = reader.instrumentData(EURUSD, 2017)
+
+        then:
+        1 * source.instrumentSeries(EURUSD, 2017) >> CandleSeries.from(candles)
+        converted == candles
+        Files.exists(reader.historyFile(EURUSD, 2017))
+
+        when: 'the binary file exists'
+        def read = reader.instrumentData(EURUSD, 2017)
+
+        then:
+        0 * source._
+        read == candles
+    }
+
+    def 'should not write a file when the source has no data'() {
+
+        OneMinuteCandleReader source = Mock()
+        def reader = new BinaryHistoryFileReader(directory, source)
+
+        when:
+        def actual = reader.instrumentSeries(EURUSD, 2016)
+
+        then:
+        1 * source.instrumentSeries(EURUSD, 2016) >> CandleSeries.empty()
+        actual.isEmpty()
+        !Files.exists(reader.historyFile(EURUSD, 2016))
+    }
+
+    def 'should reject a file that is not a binary history file'() {
+
+        def file = directory.resolve('bad.fxc')
+        Files.write(file, 'not candles'.bytes)
+
+        when:
+        BinaryHistoryFileReader.read(file)
+
+        then:
+        thrown IOException
+    }
+}
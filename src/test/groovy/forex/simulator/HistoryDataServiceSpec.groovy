@@ -29,6 +29,7 @@ import static java.time.Month.JANUARY
 class HistoryDataServiceSpec extends Specification {
 
     static HistoryDataService service = new HistoryDataService(new TestClock(LocalDateTime.now()), new CSVHistoryFileReader('/history/Oanda_%s_%d.csv'))
+    static HistoryDataService histDataService = new HistoryDataService(new TestClock(LocalDateTime.now()), new StreamingCSVHistoryFileReader())
 
     @Unroll
     def 'should rollup minute data and ranges correctly, timeFrame: #timeFrame, range: #range'() {
@@ -86,4 +87,19 @@ class HistoryDataServiceSpec extends Specification {
                 (LocalDateTime.of(2017, JANUARY, 2, 17, 0)): new CandlestickData(104684L, 104711L, 104654L, 104680L)
         ]
     }
-}
\ No newline at end of file
+
+    @Unroll
+    def 'should find the next time with data after #after up to #end'() {
+
+        expect:
+        histDataService.nextAvailableTime(EURUSD, after, end) == Optional.ofNullable(expected)
+
+        where:
+        after                                        | end                                          | expected
+        LocalDateTime.of(2019, JANUARY, 1, 16, 0)    | LocalDateTime.of(2019, JANUARY, 2, 0, 0)     | LocalDateTime.of(2019, JANUARY, 1, 16, 2)
+        LocalDateTime.of(2019, JANUARY, 1, 16, 2)    | LocalDateTime.of(2019, JANUARY, 2, 0, 0)     | LocalDateTime.of(2019, JANUARY, 1, 16, 3)
+        LocalDateTime.of(2019, JANUARY, 4, 15, 59)   | LocalDateTime.of(2019, JANUARY, 7, 0, 0)     | LocalDateTime.of(2019, JANUARY, 6, 16, 0)
+        LocalDateTime.of(2019, JANUARY, 4, 15, 59)   | LocalDateTime.of(2019, JANUARY, 6, 16, 0)    | LocalDateTime.of(2019, JANUARY, 6, 16, 0)
+        LocalDateTime.of(2019, JANUARY, 4, 15, 59)   | LocalDateTime.of(2019, JANUARY, 6, 12, 0)    | null
+    }
+}
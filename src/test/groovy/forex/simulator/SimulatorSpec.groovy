@@ -2,11 +2,14 @@ package forex.simulator
 
 import forex.broker.ForexBroker
 import forex.broker.LiveTraders
+import forex.trader.ForexTrader
 import spock.lang.Specification
 
 import java.time.LocalDateTime
 import java.time.Month
 
+import static forex.trader.TradingStrategies.SMARTER_MARTINGALE
+
 class SimulatorSpec extends Specification {
 
     def broker = Mock(ForexBroker)
@@ -123,4 +126,45 @@ class SimulatorSpec extends Specification {
         then: 'results are processed'
         1 * resultProcessor.done(traders, context, simulation)
     }
+
+    def 'should jump to the minutes with data and only wake the traders when their strategy is active'() {
+
+        given: 'an event driven simulation'
+        def start = LocalDateTime.of(2017, Month.FEBRUARY, 2, 3, 30)
+        def end = LocalDateTime.of(2017, Month.FEBRUARY, 2, 4, 10)
+        SimulatorProperties simulation = new SimulatorProperties(startTime: start, endTime: end, millisDelayBetweenMinutes: 0L, eventDriven: true)
+
+        def trader = Mock(ForexTrader)
+        trader.getStrategy() >> SMARTER_MARTINGALE
+
+        def clock = new SimulatorClock(simulation)
+        Simulator simulator = new Simulator(simulation, clock, broker, context, new LiveTraders([trader]), [])
+
+        and: 'data for only a few minutes'
+        def available = [
+                LocalDateTime.of(2017, Month.FEBRUARY, 2, 3, 31),
+                LocalDateTime.of(2017, Month.FEBRUARY, 2, 3, 40),
+                LocalDateTime.of(2017, Month.FEBRUARY, 2, 3, 48)
+        ]
+        context.nextAvailableTime(_, end) >> { LocalDateTime after, LocalDateTime e -> Optional.ofNullable(available.find { it.isAfter(after) }) }
+
+        def times = []
+
+        when: 'we process each event of the simulation'
+        while (clock.now().isBefore(end)) {
+            simulator.nextMinute()
+
+            times += clock.now()
+        }
+
+        then: 'the clock only stopped on minutes with data and the end'
+        times == available + end
+
+        and: 'orders were processed for each minute with data'
+        3 * context.beforeTraders()
+        3 * context.afterTraders()
+
+        and: 'the broker was only notified when the strategy could trade'
+        1 * broker.processUpdates()
+    }
 }
@@ -0,0 +1,72 @@
+package forex.simulator
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.LocalDateTime
+
+import static forex.market.Instrument.EURUSD
+import static forex.market.Instrument.USDEUR
+import static java.time.Month.JANUARY
+
+class StopLossTakeProfitIndexSpec extends Specification {
+
+    static final LocalDateTime OPENED = LocalDateTime.of(2017, JANUARY, 3, 9, 0)
+
+    def index = new StopLossTakeProfitIndex()
+
+    def setup() {
+        index.add(new StopLossTakeProfitIndex.Trigger('1', EURUSD, OPENED, 104600L, 104800L))
+        index.add(new StopLossTakeProfitIndex.Trigger('2', EURUSD, OPENED, 104650L, 104700L))
+        index.add(new StopLossTakeProfitIndex.Trigger('3', USDEUR, OPENED, 95000L, 96000L))
+    }
+
+    @Unroll
+    def 'should find the positions crossed by the range #low - #high'() {
+
+        expect:
+        index.triggered(EURUSD, low, high)*.accountId as Set == expected as Set
+
+        where:
+        low     | high    | expected
+        104660L | 104690L | []
+        104650L | 104700L | []
+        104649L | 104700L | ['2']
+        104650L | 104701L | ['2']
+        104599L | 104660L | ['1', '2']
+        104660L | 104801L | ['1', '2']
+        104500L | 104900L | ['1', '2']
+    }
+
+    def 'should only trigger the same way as a single price'() {
+
+        def trigger = index.get('2')
+
+        expect:
+        !trigger.isTriggered(104650L)
+        !trigger.isTriggered(104700L)
+        trigger.isTriggered(104649L)
+        trigger.isTriggered(104701L)
+    }
+
+    def 'should no longer trigger removed positions'() {
+
+        when:
+        index.remove('2')
+        index.remove('3')
+
+        then:
+        index.triggered(EURUSD, 104500L, 104900L)*.accountId == ['1']
+        index.instruments() == [EURUSD]
+        index.size() == 1
+    }
+
+    def 'should not allow more than one position per account'() {
+
+        when:
+        index.add(new StopLossTakeProfitIndex.Trigger('1', USDEUR, OPENED, 95000L, 96000L))
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
@@ -0,0 +1,53 @@
+package forex.simulator
+
+import forex.broker.CandlestickData
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static forex.market.Instrument.EURUSD
+import static java.time.Month.JANUARY
+import static java.time.Month.MARCH
+import static java.time.Month.NOVEMBER
+
+class StreamingCSVHistoryFileReaderSpec extends Specification {
+
+    def 'should read the same candles as the csv history file reader'() {
+
+        def expected = new CSVHistoryFileReader().instrumentData(EURUSD, 2019)
+
+        when:
+        def actual = new StreamingCSVHistoryFileReader().instrumentData(EURUSD, 2019)
+
+        then:
+        !actual.isEmpty()
+        actual == expected
+    }
+
+    def 'should read history file as UTC-5 minute data and convert to local'() {
+
+        def data = new StreamingCSVHistoryFileReader().instrumentSeries(EURUSD, 2019)
+
+        expect:
+        data.time(0) == LocalDateTime.of(2019, JANUARY, 1, 16, 2)
+        data.candle(0) == new CandlestickData(114598L, 114599L, 114598L, 114598L)
+    }
+
+    def 'should convert across daylight savings transitions'() {
+
+        def offsets = new StreamingCSVHistoryFileReader.OffsetTable(LocalDateTime.of(2019, JANUARY, 1, 0, 0).toLocalDate().toEpochDay(),
+                LocalDateTime.of(2019, NOVEMBER, 30, 0, 0).toLocalDate().toEpochDay())
+
+        expect:
+        local(offsets, LocalDateTime.of(2019, MARCH, 10, 2, 59)) == LocalDateTime.of(2019, MARCH, 10, 1, 59)
+        local(offsets, LocalDateTime.of(2019, MARCH, 10, 3, 0)) == LocalDateTime.of(2019, MARCH, 10, 3, 0)
+        local(offsets, LocalDateTime.of(2019, NOVEMBER, 3, 1, 59)) == LocalDateTime.of(2019, NOVEMBER, 3, 1, 59)
+        local(offsets, LocalDateTime.of(2019, NOVEMBER, 3, 2, 0)) == LocalDateTime.of(2019, NOVEMBER, 3, 1, 0)
+    }
+
+    static LocalDateTime local(StreamingCSVHistoryFileReader.OffsetTable offsets, LocalDateTime fileTime) {
+        def fileDay = fileTime.toLocalDate().toEpochDay()
+        def utcMinute = fileDay * 1440 + fileTime.hour * 60 + fileTime.minute + 300
+        LocalDateTime.ofEpochSecond(offsets.toLocal(fileDay, utcMinute) * 60, 0, java.time.ZoneOffset.UTC)
+    }
+}
@@ -14,6 +14,7 @@ import forex.market.AccountOrderService
 import forex.market.AccountRepository
 import forex.market.MarketTime
 import forex.market.TradeRepository
+import org.springframework.transaction.PlatformTransactionManager
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -42,7 +43,7 @@ class TraderServiceImplSpec extends Specification {
 
         def orderService = Mock(AccountOrderService)
 
-        TraderServiceImpl traderService = new TraderServiceImpl(context, Mock(MarketTime), accountRepository, tradeRepository, orderService)
+        TraderServiceImpl traderService = new TraderServiceImpl(context, Mock(MarketTime), accountRepository, tradeRepository, orderService, Mock(PlatformTransactionManager))
 
         when: 'the updates are processed'
         traderService.accountAndTrades(accountID, 10)
@@ -80,7 +81,7 @@ class TraderServiceImplSpec extends Specification {
 
         def orderService = Mock(AccountOrderService)
 
-        TraderServiceImpl traderService = new TraderServiceImpl(context, Mock(MarketTime), accountRepository, tradeRepository, orderService)
+        TraderServiceImpl traderService = new TraderServiceImpl(context, Mock(MarketTime), accountRepository, tradeRepository, orderService, Mock(PlatformTransactionManager))
 
         when: 'the updates are processed'
         def accountAndTrades = traderService.accountAndTrades(accountID, 10)
@@ -94,4 +95,51 @@ class TraderServiceImplSpec extends Specification {
         and: 'the account was reinitialized'
         1 * context.initializeAccount(accountID, 10) >> new AccountAndTrades(new AccountSummary(currentAccount, [], Orders.empty()), [])
     }
+
+    def 'should refresh a cached account from its changes without reading the database'() {
+
+        def currentAccount = new Account.Builder(accountID)
+                .withBalanceDollars(50)
+                .withLastTransactionID('3')
+                .withProfitLoss(1L)
+                .build()
+
+        def context = Mock(Context)
+        context.accountChanges(_) >> new AccountChangesResponse('3', new AccountChanges(Orders.empty(), Orders.empty(), Orders.empty(), [], []), new AccountChangesState(5000167, 0L, []))
+
+        def accountRepository = Mock(AccountRepository)
+        accountRepository.findById(accountID) >> Optional.of(currentAccount)
+        accountRepository.getOne(accountID) >> currentAccount
+
+        def tradeRepository = Mock(TradeRepository)
+        tradeRepository.findByAccountIdAndCloseTimeIsNull(accountID) >> []
+        tradeRepository.findByAccountIdAndCloseTimeIsNotNullOrderByCloseTimeDesc(accountID, _) >> []
+
+        def orderService = Mock(AccountOrderService)
+        orderService.findPendingOrders(accountID) >> Orders.empty()
+
+        def transactionManager = Mock(PlatformTransactionManager)
+
+        TraderServiceImpl traderService = new TraderServiceImpl(context, Mock(MarketTime), accountRepository, tradeRepository, orderService, transactionManager, true)
+        traderService.accountAndTrades(accountID, 10)
+
+        when: 'the account is refreshed again'
+        def actual = traderService.accountAndTrades(accountID, 10)
+        traderService.flush()
+
+        then: 'the database was not read'
+        0 * accountRepository.findById(_)
+        0 * accountRepository.getOne(_)
+        0 * tradeRepository._
+        0 * orderService.findPendingOrders(_)
+
+        and: 'the changes were written behind, in the only transaction'
+        1 * transactionManager.getTransaction(_)
+        1 * accountRepository.save(_ as Account)
+        1 * orderService.saveIfNotExists(_ as Orders)
+
+        and: 'the account was current with the changes'
+        actual.account.netAssetValue == 5000167
+    }
+
 }
@@ -1,6 +1,8 @@
 package forex.market;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 public interface Market {
 
@@ -10,5 +12,10 @@ public interface Market {
 
     boolean isAvailable(LocalDate date);
 
+    /**
+     * @return the next time the market is available after the given time, up to and including the end
+     */
+    Optional<LocalDateTime> nextAvailableTime(LocalDateTime after, LocalDateTime end);
+
     void processUpdates();
 }
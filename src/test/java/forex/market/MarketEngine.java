@@ -10,9 +10,10 @@ import forex.market.order.SellMarketOrder;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -37,7 +38,7 @@ public interface MarketEngine extends Market {
 
         private final ForexMarket market;
         private final MarketTime clock;
-        private final List<String> openOrders = new ArrayList<>();
+        private final OrderBook orderBook = new OrderBook();
         private final Map<String, OrderRequest> ordersById = new HashMap<>();
         private final Map<String, OrderListener> listenersByOrder = new HashMap<>();
 
@@ -61,6 +62,11 @@ public interface MarketEngine extends Market {
             return market.isAvailable(date);
         }
 
+        @Override
+        public Optional<LocalDateTime> nextAvailableTime(LocalDateTime after, LocalDateTime end) {
+            return market.nextAvailableTime(after, end);
+        }
+
         @Override
         public void processUpdates() {
 
@@ -106,32 +112,31 @@ public interface MarketEngine extends Market {
         }
 
         private void processOrders() {
-            for (Iterator<String> iter = openOrders.iterator(); iter.hasNext(); ) {
-                String orderId = iter.next();
-                OrderRequest order = ordersById.get(orderId);
+            LocalDateTime now = clock.now();
 
-                final OrderRequest updated;
+            List<OrderBook.Entry> processed = orderBook.expired(now);
+            Map<Instrument, Long> prices = new EnumMap<>(Instrument.class);
 
-                if (order.isExpired(clock.now())) {
-                    updated = OrderRequest.cancelled(order, clock);
-                } else {
-                    long price = getPrice(order.getInstrument());
-                    Optional<Long> limit = order.limit();
-                    if (limit.isPresent()) {
-                        long limitPrice = limit.get();
-                        if ((order.isBuyOrder() && price > limitPrice) ||
-                                (order.isSellOrder() && price < limitPrice)) {
-                            continue; // Limit not met
-                        }
-                    }
-
-                    updated = OrderRequest.executed(order, clock, price);
-                }
+            for (Instrument instrument : new ArrayList<>(orderBook.instruments())) {
+                long price = getPrice(instrument);
+                prices.put(instrument, price);
+
+                processed.addAll(orderBook.fillable(instrument, price));
+            }
+
+            // Notify in the order the orders were submitted, the same as checking every open order
+            processed.sort(OrderBook.SUBMISSION_ORDER);
+
+            for (OrderBook.Entry entry : processed) {
+                OrderRequest order = entry.order;
+                String orderId = order.getId();
+
+                OrderRequest updated = order.isExpired(now) ? OrderRequest.cancelled(order, clock) :
+                        OrderRequest.executed(order, clock, prices.get(order.getInstrument()));
 
                 ordersById.put(orderId, updated);
-                iter.remove();
 
-                OrderListener broker = listenersByOrder.get(orderId);
+                OrderListener broker = listenersByOrder.remove(orderId);
 
                 if (updated.getStatus() == OrderStatus.CANCELLED) {
                     broker.orderCancelled(updated);
@@ -144,7 +149,7 @@ public interface MarketEngine extends Market {
         private void addOrder(OrderListener broker, OrderRequest order) {
             String id = order.getId();
 
-            openOrders.add(id);
+            orderBook.add(order);
             ordersById.put(id, order);
             listenersByOrder.put(id, broker);
         }
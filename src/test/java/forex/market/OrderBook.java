@@ -0,0 +1,139 @@
+package forex.market;
+
+import forex.market.order.OrderRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Open orders by instrument, with buy limits ordered from the highest limit, sell limits from the lowest limit, and
+ * all orders with an expiration ordered by it. Each update only touches the orders that expired or can be filled.
+ * Orders taken from the book are removed from the other queues lazily, once they reach the head.
+ */
+final class OrderBook {
+
+    static final class Entry {
+        final long sequence;
+        final OrderRequest order;
+        final long limit;
+
+        private boolean removed;
+
+        private Entry(long sequence, OrderRequest order) {
+            this.sequence = sequence;
+            this.order = order;
+            this.limit = order.limit().orElse(0L);
+        }
+    }
+
+    static final Comparator<Entry> SUBMISSION_ORDER = comparingLong(it -> it.sequence);
+
+    private final Map<Instrument, List<Entry>> marketOrders = new EnumMap<>(Instrument.class);
+    private final Map<Instrument, PriorityQueue<Entry>> buyLimits = new EnumMap<>(Instrument.class);
+    private final Map<Instrument, PriorityQueue<Entry>> sellLimits = new EnumMap<>(Instrument.class);
+    private final Map<Instrument, Integer> openOrders = new EnumMap<>(Instrument.class);
+    private final PriorityQueue<Entry> expirations = new PriorityQueue<>(
+            comparing((Entry it) -> it.order.expiration().get()).thenComparing(SUBMISSION_ORDER));
+
+    private long nextSequence;
+
+    void add(OrderRequest order) {
+        Entry entry = new Entry(nextSequence++, order);
+        Instrument instrument = order.getInstrument();
+
+        if (!order.limit().isPresent()) {
+            marketOrders.computeIfAbsent(instrument, it -> new ArrayList<>()).add(entry);
+        } else if (order.isBuyOrder()) {
+            buyLimits.computeIfAbsent(instrument, it -> new PriorityQueue<>(
+                    comparingLong((Entry e) -> e.limit).reversed().thenComparing(SUBMISSION_ORDER))).add(entry);
+        } else {
+            sellLimits.computeIfAbsent(instrument, it -> new PriorityQueue<>(
+                    comparingLong((Entry e) -> e.limit).thenComparing(SUBMISSION_ORDER))).add(entry);
+        }
+
+        if (order.expiration().isPresent()) {
+            expirations.add(entry);
+        }
+
+        openOrders.merge(instrument, 1, Integer::sum);
+    }
+
+    /**
+     * @return the instruments with open orders
+     */
+    Set<Instrument> instruments() {
+        return openOrders.keySet();
+    }
+
+    /**
+     * Removes and returns the orders expired at the time.
+     */
+    List<Entry> expired(LocalDateTime now) {
+        List<Entry> expired = new ArrayList<>();
+        while (!expirations.isEmpty()) {
+            Entry head = expirations.peek();
+            if (head.removed) {
+                expirations.poll();
+            } else if (head.order.isExpired(now)) {
+                expired.add(remove(expirations.poll()));
+            } else {
+                break;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Removes and returns the market orders and the limit orders that can be filled at the price.
+     */
+    List<Entry> fillable(Instrument instrument, long price) {
+        List<Entry> fillable = new ArrayList<>();
+
+        List<Entry> instrumentMarketOrders = marketOrders.remove(instrument);
+        if (instrumentMarketOrders != null) {
+            instrumentMarketOrders.stream()
+                    .filter(it -> !it.removed)
+                    .forEach(it -> fillable.add(remove(it)));
+        }
+
+        // Buy limits fill at or below their limit, sell limits fill at or above it
+        pollWhile(buyLimits.get(instrument), it -> price <= it.limit, fillable);
+        pollWhile(sellLimits.get(instrument), it -> price >= it.limit, fillable);
+
+        return fillable;
+    }
+
+    private void pollWhile(PriorityQueue<Entry> limits, Predicate<Entry> fillable, List<Entry> result) {
+        if (limits == null) {
+            return;
+        }
+
+        while (!limits.isEmpty()) {
+            Entry head = limits.peek();
+            if (head.removed) {
+                limits.poll();
+            } else if (fillable.test(head)) {
+                result.add(remove(limits.poll()));
+            } else {
+                break;
+            }
+        }
+    }
+
+    private Entry remove(Entry entry) {
+        entry.removed = true;
+        openOrders.computeIfPresent(entry.order.getInstrument(), (instrument, count) -> count == 1 ? null : count - 1);
+
+        return entry;
+    }
+}
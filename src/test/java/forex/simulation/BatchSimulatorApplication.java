@@ -0,0 +1,48 @@
+package forex.simulation;
+
+import forex.market.MarketConfig;
+import forex.market.PersistenceConfig;
+import forex.simulator.BatchSimulator;
+import forex.simulator.BatchSimulatorProperties;
+import forex.simulator.SimulatorConfig;
+import forex.simulator.SimulatorProperties;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs every scenario from the batch properties grid, see {@link BatchSimulatorProperties}. This isn't annotated as a
+ * configuration so the component scan of {@link SimulatorApplication} doesn't pick up its runner.
+ */
+@EnableAutoConfiguration
+@EnableConfigurationProperties(BatchSimulatorProperties.class)
+@Import({SimulatorConfig.class, PersistenceConfig.class, MarketConfig.class, ResultsFileProcessor.class})
+class BatchSimulatorApplication {
+
+    public static void main(String[] args) {
+        System.setProperty("spring.profiles.active", "simulation");
+        SpringApplication.run(BatchSimulatorApplication.class, args);
+    }
+
+    @Bean
+    public CommandLineRunner commandLineRunner(ApplicationContext context, SimulatorProperties simulatorProperties,
+                                               BatchSimulatorProperties batchSimulatorProperties) {
+        return args -> {
+            int parallelism = batchSimulatorProperties.getParallelism() > 0 ? batchSimulatorProperties.getParallelism() :
+                    Runtime.getRuntime().availableProcessors();
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                new BatchSimulator(context, pool).run(batchSimulatorProperties.scenarios(simulatorProperties));
+            } finally {
+                pool.shutdown();
+            }
+        };
+    }
+}
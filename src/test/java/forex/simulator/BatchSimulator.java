@@ -0,0 +1,88 @@
+package forex.simulator;
+
+import com.google.common.base.Stopwatch;
+import forex.broker.BrokerConfig;
+import forex.trader.TraderConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs simulation scenarios in parallel. Each scenario gets a child context of the shared context with its own clock,
+ * market engine, trade service, sequence service, broker and traders, while the history data, the database and the
+ * results processors are shared.
+ */
+public class BatchSimulator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchSimulator.class);
+
+    /**
+     * Bean post processors aren't inherited from the parent context, so transactions have to be enabled again.
+     */
+    @Configuration
+    @EnableTransactionManagement
+    static class ScenarioTransactionConfig {
+    }
+
+    private final ApplicationContext sharedContext;
+    private final ForkJoinPool pool;
+
+    public BatchSimulator(ApplicationContext sharedContext, ForkJoinPool pool) {
+        this.sharedContext = sharedContext;
+        this.pool = pool;
+    }
+
+    public void run(List<SimulatorProperties> scenarios) throws Exception {
+        Stopwatch timer = Stopwatch.createStarted();
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (SimulatorProperties scenario : scenarios) {
+            tasks.add(pool.submit(() -> {
+                run(scenario);
+                return null;
+            }));
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            String scenarioName = scenarios.get(i).getScenarioName();
+            try {
+                tasks.get(i).get();
+            } catch (ExecutionException e) {
+                LOG.error("Scenario {} failed!", scenarioName, e.getCause());
+                failed.add(scenarioName);
+            }
+        }
+
+        LOG.info("Ran {} scenarios with parallelism {} in {}", scenarios.size(), pool.getParallelism(), timer);
+
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Scenarios failed: " + failed);
+        }
+    }
+
+    void run(SimulatorProperties scenario) throws Exception {
+        Stopwatch timer = Stopwatch.createStarted();
+
+        try (AnnotationConfigApplicationContext scenarioContext = new AnnotationConfigApplicationContext()) {
+            scenarioContext.setParent(sharedContext);
+            scenarioContext.setDisplayName(scenario.getScenarioName());
+            scenarioContext.getBeanFactory().registerSingleton("simulatorProperties", scenario);
+            scenarioContext.register(ScenarioTransactionConfig.class, SimulatorScenarioConfig.class, BrokerConfig.class, TraderConfig.class);
+            scenarioContext.refresh();
+
+            scenarioContext.getBean(Simulator.class).run();
+        }
+
+        LOG.info("Scenario {} completed in {}", scenario.getScenarioName(), timer);
+    }
+}
@@ -0,0 +1,130 @@
+package forex.simulator;
+
+import forex.trader.TradingStrategies;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A grid of variations on the simulation properties. Every combination of the configured values is a scenario, and
+ * properties without variations keep the value from the simulation properties.
+ */
+@ConfigurationProperties(prefix = "batch")
+public class BatchSimulatorProperties {
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    public static class Period {
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+
+        public LocalDateTime getStartTime() {
+            return startTime;
+        }
+
+        public void setStartTime(LocalDateTime startTime) {
+            this.startTime = startTime;
+        }
+
+        public LocalDateTime getEndTime() {
+            return endTime;
+        }
+
+        public void setEndTime(LocalDateTime endTime) {
+            this.endTime = endTime;
+        }
+    }
+
+    private int parallelism;
+    private List<Period> periods = new ArrayList<>();
+    private List<Long> pippeteSpreads = new ArrayList<>();
+    private List<Integer> accountBalanceDollars = new ArrayList<>();
+    private List<TradingStrategies> tradingStrategies = new ArrayList<>();
+
+    public List<SimulatorProperties> scenarios(SimulatorProperties base) {
+        Period basePeriod = new Period();
+        basePeriod.setStartTime(base.getStartTime());
+        basePeriod.setEndTime(base.getEndTime());
+
+        List<SimulatorProperties> scenarios = new ArrayList<>();
+        for (Period period : orDefault(periods, basePeriod)) {
+            for (Long pippeteSpread : orDefault(pippeteSpreads, base.getPippeteSpread())) {
+                for (Integer balance : orDefault(accountBalanceDollars, base.getAccountBalanceDollars())) {
+                    // Each strategy variation runs on its own, otherwise all of the base strategies run together
+                    List<List<TradingStrategies>> strategyVariations = new ArrayList<>();
+                    if (tradingStrategies.isEmpty()) {
+                        strategyVariations.add(base.getTradingStrategies());
+                    } else {
+                        tradingStrategies.forEach(it -> strategyVariations.add(Collections.singletonList(it)));
+                    }
+
+                    for (List<TradingStrategies> strategies : strategyVariations) {
+                        SimulatorProperties scenario = base.copy();
+                        scenario.setStartTime(period.getStartTime());
+                        scenario.setEndTime(period.getEndTime());
+                        scenario.setPippeteSpread(pippeteSpread);
+                        scenario.setAccountBalanceDollars(balance);
+                        scenario.setTradingStrategies(new ArrayList<>(strategies));
+
+                        String name = String.format("%s-%s-spread%d-balance%d",
+                                NAME_FORMAT.format(period.getStartTime()), NAME_FORMAT.format(period.getEndTime()),
+                                pippeteSpread, balance);
+                        scenario.setScenarioName(tradingStrategies.isEmpty() ? name : name + "-" + strategies.get(0));
+
+                        scenarios.add(scenario);
+                    }
+                }
+            }
+        }
+
+        return scenarios;
+    }
+
+    private static <T> List<T> orDefault(List<T> variations, T defaultValue) {
+        return variations.isEmpty() ? Collections.singletonList(defaultValue) : variations;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public List<Period> getPeriods() {
+        return periods;
+    }
+
+    public void setPeriods(List<Period> periods) {
+        this.periods = periods;
+    }
+
+    public List<Long> getPippeteSpreads() {
+        return pippeteSpreads;
+    }
+
+    public void setPippeteSpreads(List<Long> pippeteSpreads) {
+        this.pippeteSpreads = pippeteSpreads;
+    }
+
+    public List<Integer> getAccountBalanceDollars() {
+        return accountBalanceDollars;
+    }
+
+    public void setAccountBalanceDollars(List<Integer> accountBalanceDollars) {
+        this.accountBalanceDollars = accountBalanceDollars;
+    }
+
+    public List<TradingStrategies> getTradingStrategies() {
+        return tradingStrategies;
+    }
+
+    public void setTradingStrategies(List<TradingStrategies> tradingStrategies) {
+        this.tradingStrategies = tradingStrategies;
+    }
+}
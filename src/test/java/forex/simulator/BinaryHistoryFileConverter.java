@@ -0,0 +1,43 @@
+package forex.simulator;
+
+import forex.market.CandleSeries;
+import forex.market.Instrument;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts the HistData CSV files on the classpath into binary history files.
+ * <p>
+ * Usage: BinaryHistoryFileConverter outputDirectory startYear endYear
+ */
+public class BinaryHistoryFileConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: BinaryHistoryFileConverter outputDirectory startYear endYear");
+            System.exit(1);
+        }
+
+        Path directory = Paths.get(args[0]);
+        int startYear = Integer.parseInt(args[1]);
+        int endYear = Integer.parseInt(args[2]);
+
+        StreamingCSVHistoryFileReader csvReader = new StreamingCSVHistoryFileReader();
+        BinaryHistoryFileReader binaryReader = new BinaryHistoryFileReader(directory, csvReader);
+
+        for (Instrument instrument : Instrument.values()) {
+            if (instrument.isInverse()) {
+                continue;
+            }
+
+            for (int year = startYear; year <= endYear; year++) {
+                CandleSeries candles = csvReader.instrumentSeries(instrument, year);
+                if (!candles.isEmpty()) {
+                    BinaryHistoryFileReader.write(candles, binaryReader.historyFile(instrument, year));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package forex.simulator;
+
+import com.google.common.base.Stopwatch;
+import forex.broker.CandlestickData;
+import forex.market.CandleSeries;
+import forex.market.Instrument;
+import forex.market.OneMinuteCandleReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.NavigableMap;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Reads one minute candles from fixed-width binary files, one per instrument and year. The layout is a header of magic,
+ * version and candle count followed by five int columns: epoch minutes, opens, highs, lows and closes in pippetes.
+ * Files missing from the directory are converted from the source reader the first time they are requested.
+ */
+public class BinaryHistoryFileReader implements OneMinuteCandleReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryHistoryFileReader.class);
+    private static final String HISTORY_FILE_PATTERN = "%s_M1_%d.fxc";
+
+    static final int MAGIC = 0x46584331; // FXC1
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 3 * Integer.BYTES;
+    static final int COLUMNS = 5;
+
+    private final Path directory;
+    private final OneMinuteCandleReader source;
+
+    public BinaryHistoryFileReader(Path directory, OneMinuteCandleReader source) {
+        this.directory = directory;
+        this.source = source;
+    }
+
+    @Override
+    public NavigableMap<LocalDateTime, CandlestickData> instrumentData(Instrument instrument, int year) throws IOException {
+        return instrumentSeries(instrument, year).asMap();
+    }
+
+    @Override
+    public CandleSeries instrumentSeries(Instrument instrument, int year) throws IOException {
+        Path file = historyFile(instrument, year);
+        if (!Files.exists(file)) {
+            CandleSeries candles = source.instrumentSeries(instrument, year);
+            if (!candles.isEmpty()) {
+                write(candles, file);
+            }
+            return candles;
+        }
+
+        Stopwatch timer = Stopwatch.createStarted();
+        CandleSeries candles = read(file);
+
+        LOG.info("Loaded {}-{} in {}", instrument, year, timer);
+
+        return candles;
+    }
+
+    Path historyFile(Instrument instrument, int year) {
+        return directory.resolve(String.format(HISTORY_FILE_PATTERN, instrument.name(), year));
+    }
+
+    static CandleSeries read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(String.format("History file %s is too small", file));
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            int count = buffer.getInt();
+            if (magic != MAGIC || version != VERSION) {
+                throw new IOException(String.format("Unsupported history file %s, magic %x version %d", file, magic, version));
+            }
+            long expectedSize = HEADER_BYTES + (long) COLUMNS * count * Integer.BYTES;
+            if (channel.size() != expectedSize) {
+                throw new IOException(String.format("History file %s has %d bytes, expected %d", file, channel.size(), expectedSize));
+            }
+
+            IntBuffer columns = buffer.asIntBuffer();
+            long[] times = column(columns, count);
+            long[] opens = column(columns, count);
+            long[] highs = column(columns, count);
+            long[] lows = column(columns, count);
+            long[] closes = column(columns, count);
+
+            return CandleSeries.of(times, opens, highs, lows, closes);
+        }
+    }
+
+    private static long[] column(IntBuffer columns, int count) {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = columns.get();
+        }
+        return values;
+    }
+
+    static void write(CandleSeries candles, Path file) throws IOException {
+        int count = candles.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + COLUMNS * count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(Math.toIntExact(candles.epochMinute(i)));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(Math.toIntExact(candles.open(i)));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(Math.toIntExact(candles.high(i)));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(Math.toIntExact(candles.low(i)));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(Math.toIntExact(candles.close(i)));
+        }
+        buffer.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        // Write to a temporary file first so a partially written file is never picked up by a reader
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LOG.info("Wrote {} candles to {}", count, file);
+    }
+}
@@ -9,12 +9,11 @@ import forex.market.MarketTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
-@Service
 class ForexMarketImpl implements ForexMarket {
 
     private static final Logger LOG = LoggerFactory.getLogger(ForexMarketImpl.class);
@@ -57,6 +56,11 @@ class ForexMarketImpl implements ForexMarket {
 
     @Override
     public boolean isAvailable(LocalDate date) {
-        return historyService.getAvailableDays(Instrument.EURUSD, date.getYear()).contains(date);
+        return historyService.isAvailable(Instrument.EURUSD, date);
+    }
+
+    @Override
+    public Optional<LocalDateTime> nextAvailableTime(LocalDateTime after, LocalDateTime end) {
+        return historyService.nextAvailableTime(Instrument.EURUSD, after, end);
     }
 }
@@ -1,19 +1,22 @@
 package forex.simulator;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Range;
 import forex.broker.CandlestickData;
+import forex.market.AvailableDays;
+import forex.market.CandleSeries;
 import forex.market.CandleTimeFrame;
 import forex.market.Instrument;
 import forex.market.InstrumentHistory;
 import forex.market.InstrumentHistoryService;
 import forex.market.MarketTime;
 import forex.market.OneMinuteCandleReader;
+import forex.market.PartialCandleIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,27 +25,21 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Nonnull;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
-import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
-import static forex.broker.CandlestickData.inverse;
-import static forex.market.CandleTimeFrame.FIFTEEN_MINUTE;
 import static forex.market.CandleTimeFrame.FIVE_MINUTE;
 import static forex.market.CandleTimeFrame.FOUR_HOURS;
 import static forex.market.CandleTimeFrame.ONE_DAY;
-import static forex.market.CandleTimeFrame.ONE_HOUR;
 import static forex.market.CandleTimeFrame.ONE_MINUTE;
-import static forex.market.CandleTimeFrame.ONE_MONTH;
 import static forex.market.CandleTimeFrame.ONE_WEEK;
-import static forex.market.CandleTimeFrame.THIRTY_MINUTE;
 
 @Service
 class HistoryDataService implements InstrumentHistoryService {
@@ -119,13 +116,20 @@ class HistoryDataService implements InstrumentHistoryService {
 
     private static class CurrencyData {
         final CandleTimeFrame timeFrame;
-        final NavigableMap<LocalDateTime, CandlestickData> ohlcData;
-        final NavigableSet<LocalDate> availableDates;
+        final CandleSeries candles;
+        final AvailableDays availableDays;
+        final Map<CandleTimeFrame, PartialCandleIndex> partialCandleIndexes = new ConcurrentHashMap<>();
 
-        public CurrencyData(CandleTimeFrame timeFrame, NavigableMap<LocalDateTime, CandlestickData> ohlcData, NavigableSet<LocalDate> availableDates) {
+        public CurrencyData(CandleTimeFrame timeFrame, CandleSeries candles, AvailableDays availableDays) {
             this.timeFrame = timeFrame;
-            this.ohlcData = ohlcData;
-            this.availableDates = availableDates;
+            this.candles = candles;
+            this.availableDays = availableDays;
+        }
+
+        PartialCandleIndex partialCandleIndex(CandleTimeFrame partialTimeFrame) {
+            Preconditions.checkState(timeFrame == ONE_MINUTE, "Partial candles are built from one minute candles!");
+
+            return partialCandleIndexes.computeIfAbsent(partialTimeFrame, it -> PartialCandleIndex.create(it, candles));
         }
     }
 
@@ -140,48 +144,34 @@ class HistoryDataService implements InstrumentHistoryService {
                     Instrument pair = pairYear.pair;
                     boolean inverse = pair.isInverse();
 
-                    NavigableMap<LocalDateTime, CandlestickData> result = inverse ?
-                            minuteCache.getUnchecked(new CurrencyPairYear(pair.getOpposite(), pairYear.year)).ohlcData:
-                            oneMinuteCandleReader.instrumentData(pair, pairYear.year);
+                    CandleSeries result = inverse ?
+                            minuteCache.getUnchecked(new CurrencyPairYear(pair.getOpposite(), pairYear.year)).candles.inverse() :
+                            oneMinuteCandleReader.instrumentSeries(pair, pairYear.year);
 
-                    if (inverse) {
-                        NavigableMap<LocalDateTime, CandlestickData> inverted = new TreeMap<>(result.comparator());
-                        result.forEach((time, candle) -> {
-                            inverted.put(time, inverse(candle));
-                        });
-                        result = inverted;
-                    }
-
-                    NavigableSet<LocalDate> availableDates = result.keySet().stream()
-                            .map(LocalDateTime::toLocalDate)
-                            .collect(Collectors.toCollection(TreeSet::new));
+                    AvailableDays availableDays = AvailableDays.of(pairYear.year, result.availableDays());
 
                     LOG.info("Loaded {} in {}", pairYear, timer);
 
-                    return new CurrencyData(ONE_MINUTE, result, availableDates);
+                    return new CurrencyData(ONE_MINUTE, result, availableDays);
                 }
             });
 
-    private final LoadingCache<CurrencyPairYear, CurrencyData> fiveMinuteCache = timeFrameAggregateCache(minuteCache, FIVE_MINUTE);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> fifteenMinuteCache = timeFrameAggregateCache(fiveMinuteCache, FIFTEEN_MINUTE);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> thirtyMinuteCache = timeFrameAggregateCache(fifteenMinuteCache, THIRTY_MINUTE);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> oneHourCache = timeFrameAggregateCache(thirtyMinuteCache, ONE_HOUR);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> fourHourCache = timeFrameAggregateCache(oneHourCache, FOUR_HOURS);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> oneDayCache = timeFrameAggregateCache(fourHourCache, ONE_DAY);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> oneWeekCache = timeFrameAggregateCache(oneDayCache, ONE_WEEK);
-    private final LoadingCache<CurrencyPairYear, CurrencyData> oneMonthCache = timeFrameAggregateCache(oneDayCache, ONE_MONTH);
-    private final ImmutableMap<CandleTimeFrame, LoadingCache<CurrencyPairYear, CurrencyData>> caches = ImmutableMap.<CandleTimeFrame, LoadingCache<CurrencyPairYear, CurrencyData>>
-            builder()
-            .put(ONE_MINUTE, minuteCache)
-            .put(FIVE_MINUTE, fiveMinuteCache)
-            .put(FIFTEEN_MINUTE, fifteenMinuteCache)
-            .put(THIRTY_MINUTE, thirtyMinuteCache)
-            .put(ONE_HOUR, oneHourCache)
-            .put(FOUR_HOURS, fourHourCache)
-            .put(ONE_DAY, oneDayCache)
-            .put(ONE_WEEK, oneWeekCache)
-            .put(ONE_MONTH, oneMonthCache)
-            .build();
+    private final LoadingCache<CurrencyPairYear, Map<CandleTimeFrame, CurrencyData>> aggregateCache = CacheBuilder.newBuilder()
+            .build(new CacheLoader<CurrencyPairYear, Map<CandleTimeFrame, CurrencyData>>() {
+                @Override
+                public Map<CandleTimeFrame, CurrencyData> load(@Nonnull CurrencyPairYear pairYear) throws Exception {
+                    Stopwatch timer = Stopwatch.createStarted();
+
+                    CurrencyData currencyData = minuteCache.get(pairYear);
+                    Map<CandleTimeFrame, CurrencyData> result = new EnumMap<>(CandleTimeFrame.class);
+                    CandleTimeFrame.aggregateAll(currencyData.candles).forEach((timeFrame, candles) ->
+                            result.put(timeFrame, new CurrencyData(timeFrame, candles, currencyData.availableDays)));
+
+                    LOG.info("Loaded {} aggregates in {}", pairYear, timer);
+
+                    return result;
+                }
+            });
 
     private final MarketTime clock;
 
@@ -195,8 +185,7 @@ class HistoryDataService implements InstrumentHistoryService {
     public Optional<InstrumentHistory> getData(Instrument pair, LocalDateTime time) {
         int year = time.getYear();
         CurrencyData currencyData = minuteCache.getUnchecked(new CurrencyPairYear(pair, year));
-        Map<LocalDateTime, CandlestickData> yearData = currencyData.ohlcData;
-        CandlestickData ohlc = yearData.get(time);
+        CandlestickData ohlc = currencyData.candles.get(time);
 
         return ohlc == null ? Optional.empty() : Optional.of(new InstrumentHistory(pair, time, ohlc));
     }
@@ -205,7 +194,28 @@ class HistoryDataService implements InstrumentHistoryService {
     public Set<LocalDate> getAvailableDays(Instrument pair, int year) {
         CurrencyPairYear key = new CurrencyPairYear(pair.getBrokerInstrument(), year);
         CurrencyData currencyData = minuteCache.getUnchecked(key);
-        return currencyData.availableDates;
+        return currencyData.availableDays.toSet();
+    }
+
+    @Override
+    public boolean isAvailable(Instrument pair, LocalDate date) {
+        CurrencyPairYear key = new CurrencyPairYear(pair.getBrokerInstrument(), date.getYear());
+        return minuteCache.getUnchecked(key).availableDays.contains(date);
+    }
+
+    @Override
+    public Optional<LocalDateTime> nextAvailableTime(Instrument pair, LocalDateTime after, LocalDateTime end) {
+        for (int year = after.getYear(); year <= end.getYear(); year++) {
+            CandleSeries candles = minuteCache.getUnchecked(new CurrencyPairYear(pair, year)).candles;
+
+            int index = candles.higherIndex(after);
+            if (index < candles.size()) {
+                LocalDateTime next = candles.time(index);
+                return next.isAfter(end) ? Optional.empty() : Optional.of(next);
+            }
+        }
+
+        return Optional.empty();
     }
 
     @Override
@@ -245,47 +255,54 @@ class HistoryDataService implements InstrumentHistoryService {
 
         LocalDateTime requestedEnd = between.upperEndpoint();
 
-        NavigableMap<LocalDateTime, CandlestickData> result = new TreeMap<>();
         LocalDateTime start = timeFrame.calculateStart(between.lowerEndpoint());
         LocalDateTime end = timeFrame.calculateStart(requestedEnd);
 
         int startYear = start.getYear();
         int endYear = end.getYear();
 
-        for (int year = startYear; year <= endYear; year++) {
-            result.putAll(caches.get(timeFrame).getUnchecked(new CurrencyPairYear(pair, year)).ohlcData);
-        }
-
         // This uses an inclusive end, because that's how Oanda does it
-        result = new TreeMap<>(result.subMap(start, true, end, true));
+        CandleSeries result;
+        if (startYear == endYear) {
+            result = yearCandles(timeFrame, pair, startYear).subSeries(start, true, end, true);
+        } else {
+            CandleSeries.Builder spanningYears = CandleSeries.builder();
+            for (int year = startYear; year <= endYear; year++) {
+                spanningYears.addAll(yearCandles(timeFrame, pair, year).subSeries(start, true, end, true));
+            }
+            result = spanningYears.build();
+        }
 
         // We have to create a pseudo-candle for the last one
         if (end.isBefore(requestedEnd)) {
-            NavigableMap<LocalDateTime, CandlestickData> candlesToAggregate = new TreeMap<>();
-
-            LocalDateTime candleStart = end;
-            SortedSet<CandleTimeFrame> smallerTimeFrames = CandleTimeFrame.descendingSmallerThan(timeFrame);
-            for (CandleTimeFrame candleType : smallerTimeFrames) {
-                LocalDateTime nextCandle = candleType.nextCandle(candleStart);
-
-                while (!nextCandle.isAfter(requestedEnd)) {
-                    Range<LocalDateTime> range = Range.closed(candleStart, nextCandle);
-                    candlesToAggregate.putAll(getOHLC(candleType, pair, range));
-                    candleStart = nextCandle;
-
-                    nextCandle = candleType.nextCandle(candleStart);
-                }
-
-                if (candleStart.isAfter(requestedEnd)) {
-                    break;
+            List<CandlestickData> partialCandles = new ArrayList<>();
+            for (int year = endYear; year <= requestedEnd.getYear(); year++) {
+                CandlestickData partialCandle = minuteCache.getUnchecked(new CurrencyPairYear(pair, year))
+                        .partialCandleIndex(timeFrame)
+                        .partialCandle(end, requestedEnd);
+
+                if (partialCandle != null) {
+                    partialCandles.add(partialCandle);
                 }
             }
 
-            CandlestickData aggregate = CandlestickData.aggregate(candlesToAggregate.values());
-            result.put(end, aggregate);
+            if (!partialCandles.isEmpty()) {
+                result = CandleSeries.builder(result.size() + 1)
+                        .addAll(result)
+                        .add(end, CandlestickData.aggregate(partialCandles))
+                        .build();
+            }
         }
 
-        return result;
+        return result.asMap();
+    }
+
+    private CandleSeries yearCandles(CandleTimeFrame timeFrame, Instrument pair, int year) {
+        CurrencyPairYear pairYear = new CurrencyPairYear(pair, year);
+        CurrencyData currencyData = timeFrame == ONE_MINUTE ? minuteCache.getUnchecked(pairYear) :
+                aggregateCache.getUnchecked(pairYear).get(timeFrame);
+
+        return currencyData.candles;
     }
 
     private LoadingCache<CandleRequest, NavigableMap<LocalDateTime, CandlestickData>> candleRequestCache = CacheBuilder.newBuilder()
@@ -296,21 +313,4 @@ class HistoryDataService implements InstrumentHistoryService {
                     return loadCandleData(request);
                 }
             });
-
-    private static LoadingCache<CurrencyPairYear, CurrencyData> timeFrameAggregateCache(LoadingCache<CurrencyPairYear, CurrencyData> delegate, CandleTimeFrame timeFrame) {
-        return CacheBuilder.newBuilder()
-                .build(new CacheLoader<CurrencyPairYear, CurrencyData>() {
-                    @Override
-                    public CurrencyData load(@Nonnull CurrencyPairYear pairYear) throws Exception {
-                        Stopwatch timer = Stopwatch.createStarted();
-
-                        CurrencyData currencyData = delegate.get(pairYear);
-                        NavigableMap<LocalDateTime, CandlestickData> result = timeFrame.aggregate(currencyData.ohlcData);
-
-                        LOG.info("Loaded {} ({}) in {}", pairYear, timeFrame, timer);
-
-                        return new CurrencyData(timeFrame, result, currencyData.availableDates);
-                    }
-                });
-    }
 }
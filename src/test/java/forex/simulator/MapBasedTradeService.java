@@ -4,7 +4,6 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import forex.broker.AccountSummary;
 import forex.broker.TradeSummary;
-import org.springframework.stereotype.Service;
 
 import java.util.Comparator;
 import java.util.HashMap;
@@ -16,7 +15,6 @@ import java.util.function.Function;
 
 import static java.util.Comparator.comparing;
 
-@Service
 class MapBasedTradeService implements TradeService {
 
     private final Map<String, SortedSet<TradeHistory>> closedTrades = new HashMap<>();
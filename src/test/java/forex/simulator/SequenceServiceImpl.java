@@ -1,12 +1,10 @@
 package forex.simulator;
 
-import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
-@Service
 class SequenceServiceImpl implements SequenceService {
 
     private final AtomicInteger transactionSequence = new AtomicInteger(1);
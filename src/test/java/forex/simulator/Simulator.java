@@ -3,15 +3,15 @@ package forex.simulator;
 import forex.broker.ForexBroker;
 import forex.broker.LiveTraders;
 import forex.market.BaseWatcher;
+import forex.trader.Trader;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static java.time.temporal.ChronoUnit.MINUTES;
 
-@Service
 class Simulator extends BaseWatcher<SimulatorClock, ForexBroker> {
 
     private final SimulatorProperties simulatorProperties;
@@ -58,6 +58,11 @@ class Simulator extends BaseWatcher<SimulatorClock, ForexBroker> {
             throw new IllegalStateException("Can't advance beyond the end of the simulation!");
         }
 
+        if (simulatorProperties.isEventDriven()) {
+            nextEvent(previous);
+            return;
+        }
+
         clock.advance(1, MINUTES);
 
         if (!context.isAvailable()) {
@@ -71,6 +76,37 @@ class Simulator extends BaseWatcher<SimulatorClock, ForexBroker> {
         context.afterTraders();
     }
 
+    /**
+     * Jumps straight to the next minute with market data, and only wakes the traders if one of them could act on it.
+     * Orders, stop losses and take profits are still processed on every minute with data.
+     */
+    private void nextEvent(LocalDateTime previous) throws Exception {
+        LocalDateTime end = simulatorProperties.getEndTime();
+        Optional<LocalDateTime> next = context.nextAvailableTime(previous, end);
+        if (!next.isPresent()) {
+            clock.advanceTo(end);
+            return;
+        }
+
+        clock.advanceTo(next.get());
+
+        context.beforeTraders();
+
+        if (tradersActive(next.get())) {
+            super.nextMinute();
+        }
+
+        context.afterTraders();
+    }
+
+    private boolean tradersActive(LocalDateTime now) {
+        if (Trader.isStopTrading(now)) {
+            return true;
+        }
+
+        return traders.getTraders().stream().anyMatch(it -> it.getStrategy().isActive(now));
+    }
+
     @Override
     public boolean logTime(LocalDateTime now) {
         return now.getMinute() == 0 && now.getHour() == 0 && now.getSecond() == 0;
@@ -1,5 +1,6 @@
 package forex.simulator;
 
+import com.google.common.base.Preconditions;
 import forex.market.MarketTime;
 
 import java.time.Clock;
@@ -34,6 +35,12 @@ class SimulatorClock implements MarketTime {
         configure();
     }
 
+    void advanceTo(LocalDateTime time) {
+        Preconditions.checkArgument(time.isAfter(now), "Can't go back in time from %s to %s", now, time);
+
+        init(time);
+    }
+
     private void configure() {
         Clock clock = Clock.fixed(instant, ZONE);
         now = LocalDateTime.now(clock);
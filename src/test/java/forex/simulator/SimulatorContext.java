@@ -3,11 +3,15 @@ package forex.simulator;
 import forex.broker.Context;
 import forex.broker.RequestException;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.SortedSet;
 
 public interface SimulatorContext extends Context {
     boolean isAvailable();
 
+    Optional<LocalDateTime> nextAvailableTime(LocalDateTime after, LocalDateTime end);
+
     void beforeTraders() throws RequestException;
 
     void afterTraders();
@@ -44,6 +44,7 @@ import forex.broker.TradeSummary;
 import forex.market.AccountSnapshot;
 import forex.market.CandleTimeFrame;
 import forex.market.Instrument;
+import forex.market.InstrumentHistory;
 import forex.market.InstrumentHistoryService;
 import forex.market.MarketEngine;
 import forex.market.MarketTime;
@@ -61,6 +62,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -85,22 +87,32 @@ class SimulatorContextImpl extends BaseContext implements OrderListener, Simulat
     private final Map<String, TraderData> traderDataById = new HashMap<>();
     private final Map<String, forex.broker.OrderRequest> stopLossTakeProfitsById = new HashMap<>();
     private final Map<String, AccountChangesResponse> accountChangesById = new HashMap<>();
+    private final StopLossTakeProfitIndex stopLossTakeProfits = new StopLossTakeProfitIndex();
+
+    private LocalDateTime previousUpdate;
 
     @Override
     public boolean isAvailable() {
         return marketEngine.isAvailable();
     }
 
+    @Override
+    public Optional<LocalDateTime> nextAvailableTime(LocalDateTime after, LocalDateTime end) {
+        return marketEngine.nextAvailableTime(after, end);
+    }
+
     @Override
     public void beforeTraders() throws RequestException {
         // Update prices and process any limit/stop orders
         marketEngine.processUpdates();
 
         boolean orderSubmitted = false;
-        for (AccountSummary account : tradeService.accounts()) {
-            orderSubmitted |= handleStopLossTakeProfits(account);
+        for (Instrument instrument : stopLossTakeProfits.instruments()) {
+            orderSubmitted |= handleStopLossTakeProfits(instrument);
         }
 
+        previousUpdate = clock.now();
+
         // Process any stop loss / take profits
         if (orderSubmitted) {
             marketEngine.processUpdates();
@@ -187,6 +199,11 @@ class SimulatorContextImpl extends BaseContext implements OrderListener, Simulat
             TradeSummary filledPosition = positionValue(new TradeSummary(
                     filled.getId(), accountID, instrument, price, now, filled.getUnits(), filled.getUnits(), 0L, 0L, null));
 
+            forex.broker.OrderRequest openedPosition = stopLossTakeProfitsById.get(accountID);
+            if (openedPosition != null) {
+                stopLossTakeProfits.add(stopLossTakeProfit(accountID, filledPosition, openedPosition));
+            }
+
             account = oldPortfolio.positionOpened(filledPosition, getLatestTransactionId(accountID));
             List<TradeSummary> openTrades = account.getTrades();
 
@@ -295,6 +312,7 @@ class SimulatorContextImpl extends BaseContext implements OrderListener, Simulat
             OrderRequest submitted = marketEngine.submit(SimulatorContextImpl.this, order);
             accountIdsByOrderId.put(submitted.getId(), accountID);
             stopLossTakeProfitsById.remove(accountID);
+            stopLossTakeProfits.remove(accountID);
 
             MarketOrderTransaction orderCreateTransaction = new MarketOrderTransaction(submitted.getId(), accountID,
                     submitted.getSubmissionDate(), submitted.getInstrument(), submitted.getUnits());
@@ -548,39 +566,56 @@ class SimulatorContextImpl extends BaseContext implements OrderListener, Simulat
 
     /*
      * All of this logic should be moved to be handled with orders in the market.
-     * @param trader
      * @return true if an order was submitted
      */
-    private boolean handleStopLossTakeProfits(AccountSummary account) throws RequestException {
-        String id = account.getId();
-        forex.broker.OrderRequest openedPosition = stopLossTakeProfitsById.get(id);
-
-        if (openedPosition != null) {
-            AccountSnapshot accountSnapshot = accountSnapshot(account);
-            List<TradeSummary> positions = accountSnapshot.getPositionValues();
-            if (positions.isEmpty()) { // Limit order that hasn't been filled yet
-                return false;
+    private boolean handleStopLossTakeProfits(Instrument instrument) throws RequestException {
+        LocalDateTime now = clock.now();
+        long price = marketEngine.getPrice(instrument);
+        long low = price;
+        long high = price;
+
+        // Include the price movement since the last update, which positions opened before now were exposed to
+        boolean sincePreviousUpdate = simulatorProperties.isStopLossTakeProfitOnHighLow() && previousUpdate != null;
+        if (sincePreviousUpdate) {
+            Optional<InstrumentHistory> previous = instrumentHistoryService.getData(instrument, previousUpdate);
+            if (previous.isPresent()) {
+                CandlestickData candle = previous.get().getOHLC();
+                low = Math.min(low, candle.getL());
+                high = Math.max(high, candle.getH());
             }
+        }
 
-            TradeSummary positionValue = positions.iterator().next();
-            long pipsProfit = positionValue.getUnrealizedProfitLoss();
-
-            // Close once we've lost or gained enough pipettes or if it's noon Friday
-            long stopLossPrice = openedPosition.getStopLossOnFill().getPrice();
-            long takeProfitPrice = openedPosition.getTakeProfitOnFill().getPrice();
+        boolean orderSubmitted = false;
+        for (StopLossTakeProfitIndex.Trigger trigger : stopLossTakeProfits.triggered(instrument, low, high)) {
+            if (sincePreviousUpdate && !trigger.openTime.isBefore(now) && !trigger.isTriggered(price)) {
+                continue;
+            }
 
-            long stopLoss = openedPosition.getUnits() > 0 ? positionValue.getPrice() - stopLossPrice :
-                    stopLossPrice - positionValue.getPrice();
-            long takeProfit = openedPosition.getUnits() > 0 ? takeProfitPrice - positionValue.getPrice() :
-                    positionValue.getPrice() - takeProfitPrice;
+            String id = trigger.accountId;
+            TradeSummary position = mostRecentPortfolio(id).getTrades().iterator().next();
 
-            if (pipsProfit < -stopLoss || pipsProfit > takeProfit) {
-                trade().close(new TradeCloseRequest(account.getId(), new TradeSpecifier(positionValue.getTradeId())));
-                stopLossTakeProfitsById.remove(id);
-                return true;
-            }
+            trade().close(new TradeCloseRequest(id, new TradeSpecifier(position.getTradeId())));
+            orderSubmitted = true;
         }
-        return false;
+        return orderSubmitted;
+    }
+
+    /**
+     * The position is closed when the bid crosses the stop loss or take profit, so the levels are shifted by the
+     * spread to compare against mid prices.
+     */
+    private StopLossTakeProfitIndex.Trigger stopLossTakeProfit(String accountID, TradeSummary position,
+                                                             forex.broker.OrderRequest openedPosition) {
+        Preconditions.checkArgument(openedPosition.getUnits() > 0, "Short positions are opened on the inverse pair!");
+
+        Instrument instrument = position.getInstrument();
+        long halfSpread = halfSpread(instrument);
+        long stopLoss = openedPosition.getStopLossOnFill() == null ? Long.MIN_VALUE :
+                openedPosition.getStopLossOnFill().getPrice() + halfSpread;
+        long takeProfit = openedPosition.getTakeProfitOnFill() == null ? Long.MAX_VALUE :
+                openedPosition.getTakeProfitOnFill().getPrice() + halfSpread;
+
+        return new StopLossTakeProfitIndex.Trigger(accountID, instrument, position.getOpenTime(), stopLoss, takeProfit);
     }
 
     @Override
@@ -5,6 +5,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Configuration
@@ -18,6 +19,10 @@ public class SimulatorProperties {
     private long pippeteSpread;
     private int instancesPerTraderType;
     private List<TradingStrategies> tradingStrategies;
+    private String historyDirectory;
+    private String scenarioName;
+    private boolean eventDriven;
+    private boolean stopLossTakeProfitOnHighLow;
 
     public LocalDateTime getStartTime() {
         return startTime;
@@ -74,4 +79,52 @@ public class SimulatorProperties {
     public void setTradingStrategies(List<TradingStrategies> tradingStrategies) {
         this.tradingStrategies = tradingStrategies;
     }
+
+    public String getHistoryDirectory() {
+        return historyDirectory;
+    }
+
+    public void setHistoryDirectory(String historyDirectory) {
+        this.historyDirectory = historyDirectory;
+    }
+
+    public String getScenarioName() {
+        return scenarioName;
+    }
+
+    public void setScenarioName(String scenarioName) {
+        this.scenarioName = scenarioName;
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
+    public boolean isStopLossTakeProfitOnHighLow() {
+        return stopLossTakeProfitOnHighLow;
+    }
+
+    public void setStopLossTakeProfitOnHighLow(boolean stopLossTakeProfitOnHighLow) {
+        this.stopLossTakeProfitOnHighLow = stopLossTakeProfitOnHighLow;
+    }
+
+    SimulatorProperties copy() {
+        SimulatorProperties copy = new SimulatorProperties();
+        copy.setStartTime(startTime);
+        copy.setEndTime(endTime);
+        copy.setMillisDelayBetweenMinutes(millisDelayBetweenMinutes);
+        copy.setAccountBalanceDollars(accountBalanceDollars);
+        copy.setPippeteSpread(pippeteSpread);
+        copy.setInstancesPerTraderType(instancesPerTraderType);
+        copy.setTradingStrategies(tradingStrategies == null ? null : new ArrayList<>(tradingStrategies));
+        copy.setHistoryDirectory(historyDirectory);
+        copy.setScenarioName(scenarioName);
+        copy.setEventDriven(eventDriven);
+        copy.setStopLossTakeProfitOnHighLow(stopLossTakeProfitOnHighLow);
+        return copy;
+    }
 }
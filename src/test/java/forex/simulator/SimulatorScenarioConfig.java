@@ -0,0 +1,100 @@
+package forex.simulator;
+
+import forex.broker.ForexBroker;
+import forex.broker.LiveTraders;
+import forex.market.ForexMarket;
+import forex.market.InstrumentHistoryService;
+import forex.market.MarketEngine;
+import forex.market.MarketTime;
+import forex.trader.ForexTrader;
+import forex.trader.Trader;
+import forex.trader.TraderService;
+import forex.trader.TradingStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Beans with state for a single simulation run. {@link SimulatorConfig} imports these for the configured run, and
+ * {@link BatchSimulator} creates them again in a child context per scenario, so the bean names must match to hide the
+ * beans of the parent context. It's excluded from the component scan so it's only registered where it's imported.
+ */
+@Configuration
+class SimulatorScenarioConfig {
+
+    @Bean
+    public MarketTime clock(SimulatorProperties simulatorProperties) {
+        return new SimulatorClock(simulatorProperties);
+    }
+
+    @Bean
+    ForexMarket forexMarket(MarketTime clock, InstrumentHistoryService instrumentHistoryService) {
+        return new ForexMarketImpl(clock, instrumentHistoryService);
+    }
+
+    @Bean
+    public MarketEngine forexEngine(ForexMarket market, MarketTime clock) {
+        return MarketEngine.create(market, clock);
+    }
+
+    @Bean
+    TradeService tradeService() {
+        return new MapBasedTradeService();
+    }
+
+    @Bean
+    SequenceService sequenceService() {
+        return new SequenceServiceImpl();
+    }
+
+    @Bean
+    SimulatorContext context(SimulatorProperties simulatorProperties, MarketTime clock,
+                             InstrumentHistoryService instrumentHistoryService,
+                             SequenceService sequenceService,
+                             TradeService tradeService,
+                             MarketEngine marketEngine) {
+        return new SimulatorContextImpl(clock, instrumentHistoryService, sequenceService,
+                tradeService, marketEngine, simulatorProperties);
+    }
+
+    @Bean
+    LiveTraders traders(SimulatorProperties simulatorProperties, MarketTime clock,
+                        SimulatorContext context, TraderService traderService) {
+
+        List<ForexTrader> traders = new ArrayList<>();
+        simulatorProperties.getTradingStrategies().forEach(it -> {
+            try {
+                traders.addAll(createInstances(it, simulatorProperties, context, traderService, clock));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        return new LiveTraders(traders);
+    }
+
+    @Bean
+    Simulator simulator(SimulatorProperties simulatorProperties, MarketTime clock, ForexBroker broker,
+                        SimulatorContext context, LiveTraders traders, List<ResultsProcessor> resultsProcessors) {
+        return new Simulator(simulatorProperties, (SimulatorClock) clock, broker, context, traders, resultsProcessors);
+    }
+
+    private Collection<ForexTrader> createInstances(TradingStrategy tradingStrategy,
+                                                    SimulatorProperties simulatorProperties,
+                                                    SimulatorContext context,
+                                                    TraderService traderService,
+                                                    MarketTime clock) throws Exception {
+        // Scenarios share the database, so their accounts need distinct ids
+        String scenarioName = simulatorProperties.getScenarioName();
+        String prefix = scenarioName == null ? "" : scenarioName + "-";
+
+        List<ForexTrader> traders = new ArrayList<>();
+        for (int i = 0; i < simulatorProperties.getInstancesPerTraderType(); i++) {
+            traders.add(new Trader(prefix + tradingStrategy.toString() + "-" + i, context, traderService, tradingStrategy, clock));
+        }
+        return traders;
+    }
+}
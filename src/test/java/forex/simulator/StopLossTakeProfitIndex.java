@@ -0,0 +1,133 @@
+package forex.simulator;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import forex.market.Instrument;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Open position stop loss and take profit levels by instrument, so each minute only has to look at the positions
+ * whose levels were crossed instead of every account. Levels are mid prices, with the spread already applied.
+ */
+class StopLossTakeProfitIndex {
+
+    static class Trigger {
+        final String accountId;
+        final Instrument instrument;
+        final LocalDateTime openTime;
+        final long stopLoss;
+        final long takeProfit;
+
+        Trigger(String accountId, Instrument instrument, LocalDateTime openTime, long stopLoss, long takeProfit) {
+            this.accountId = accountId;
+            this.instrument = instrument;
+            this.openTime = openTime;
+            this.stopLoss = stopLoss;
+            this.takeProfit = takeProfit;
+        }
+
+        /**
+         * @return true if the price is below the stop loss or above the take profit
+         */
+        boolean isTriggered(long price) {
+            return price < stopLoss || price > takeProfit;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("accountId", accountId)
+                    .add("instrument", instrument)
+                    .add("openTime", openTime)
+                    .add("stopLoss", stopLoss)
+                    .add("takeProfit", takeProfit)
+                    .toString();
+        }
+    }
+
+    private final Map<String, Trigger> triggersByAccountId = new HashMap<>();
+    private final Map<Instrument, NavigableMap<Long, Set<String>>> stopLosses = new EnumMap<>(Instrument.class);
+    private final Map<Instrument, NavigableMap<Long, Set<String>>> takeProfits = new EnumMap<>(Instrument.class);
+
+    void add(Trigger trigger) {
+        Preconditions.checkArgument(!triggersByAccountId.containsKey(trigger.accountId),
+                "Account %s already has a stop loss and take profit", trigger.accountId);
+
+        triggersByAccountId.put(trigger.accountId, trigger);
+        levels(stopLosses, trigger.instrument).computeIfAbsent(trigger.stopLoss, it -> new LinkedHashSet<>()).add(trigger.accountId);
+        levels(takeProfits, trigger.instrument).computeIfAbsent(trigger.takeProfit, it -> new LinkedHashSet<>()).add(trigger.accountId);
+    }
+
+    void remove(String accountId) {
+        Trigger trigger = triggersByAccountId.remove(accountId);
+        if (trigger == null) {
+            return;
+        }
+
+        removeLevel(stopLosses, trigger.instrument, trigger.stopLoss, accountId);
+        removeLevel(takeProfits, trigger.instrument, trigger.takeProfit, accountId);
+    }
+
+    Trigger get(String accountId) {
+        return triggersByAccountId.get(accountId);
+    }
+
+    /**
+     * @return the instruments with open positions
+     */
+    Collection<Instrument> instruments() {
+        return new ArrayList<>(stopLosses.keySet());
+    }
+
+    /**
+     * @return the triggers with a stop loss above the low or a take profit below the high
+     */
+    List<Trigger> triggered(Instrument instrument, long low, long high) {
+        Set<String> accountIds = new LinkedHashSet<>();
+        NavigableMap<Long, Set<String>> instrumentStopLosses = stopLosses.get(instrument);
+        if (instrumentStopLosses != null) {
+            instrumentStopLosses.tailMap(low, false).values().forEach(accountIds::addAll);
+            takeProfits.get(instrument).headMap(high, false).values().forEach(accountIds::addAll);
+        }
+
+        List<Trigger> triggered = new ArrayList<>(accountIds.size());
+        accountIds.forEach(it -> triggered.add(triggersByAccountId.get(it)));
+
+        return triggered;
+    }
+
+    int size() {
+        return triggersByAccountId.size();
+    }
+
+    private static NavigableMap<Long, Set<String>> levels(Map<Instrument, NavigableMap<Long, Set<String>>> byInstrument,
+                                                         Instrument instrument) {
+        return byInstrument.computeIfAbsent(instrument, it -> new TreeMap<>());
+    }
+
+    private static void removeLevel(Map<Instrument, NavigableMap<Long, Set<String>>> byInstrument, Instrument instrument,
+                                    long level, String accountId) {
+        NavigableMap<Long, Set<String>> levels = byInstrument.get(instrument);
+        Set<String> accountIds = levels.get(level);
+        accountIds.remove(accountId);
+
+        if (accountIds.isEmpty()) {
+            levels.remove(level);
+
+            if (levels.isEmpty()) {
+                byInstrument.remove(instrument);
+            }
+        }
+    }
+}
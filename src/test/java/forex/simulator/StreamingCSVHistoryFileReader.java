@@ -0,0 +1,277 @@
+package forex.simulator;
+
+import com.google.common.base.Stopwatch;
+import forex.broker.CandlestickData;
+import forex.market.CandleSeries;
+import forex.market.Instrument;
+import forex.market.OneMinuteCandleReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.NavigableMap;
+
+import static forex.broker.Quote.pippetesFromDouble;
+import static forex.market.MarketTime.ZONE;
+
+/**
+ * Reads the same HistData files as {@link CSVHistoryFileReader}, but parses the bytes directly into epoch minutes and
+ * pippetes without creating strings, dates or doubles per line.
+ */
+public class StreamingCSVHistoryFileReader implements OneMinuteCandleReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingCSVHistoryFileReader.class);
+    private static final String HISTORY_FILE_PATTERN = "/history/DAT_ASCII_%s_M1_%d.csv";
+
+    // The files are at UTC-5 (no daylight savings timestamp observed)
+    private static final int FILE_OFFSET_MINUTES = -5 * 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int PIPPETE_DECIMALS = 5;
+    private static final int MAX_DECIMALS = 10;
+    private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10};
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LINE_LENGTH = 128;
+
+    private final String historyFilePattern;
+
+    public StreamingCSVHistoryFileReader() {
+        this(HISTORY_FILE_PATTERN);
+    }
+
+    public StreamingCSVHistoryFileReader(String historyFilePattern) {
+        this.historyFilePattern = historyFilePattern;
+    }
+
+    @Override
+    public NavigableMap<LocalDateTime, CandlestickData> instrumentData(Instrument instrument, int year) throws IOException {
+        return instrumentSeries(instrument, year).asMap();
+    }
+
+    @Override
+    public CandleSeries instrumentSeries(Instrument instrument, int year) throws IOException {
+        Stopwatch timer = Stopwatch.createStarted();
+
+        String path = String.format(historyFilePattern, instrument.name(), year);
+
+        try (InputStream is = StreamingCSVHistoryFileReader.class.getResourceAsStream(path)) {
+            if (is == null) {
+                throw new IOException("Unable to find " + path);
+            }
+
+            CandleSeries result = new Parser(year).parse(is);
+
+            LOG.info("Loaded {}-{} in {}", instrument, year, timer);
+
+            return result;
+        } catch (Exception e) {
+            LOG.error("Unable to load data!", e);
+            return CandleSeries.empty();
+        }
+    }
+
+    /**
+     * Offsets from UTC to {@link forex.market.MarketTime#ZONE} for each file day, including the transition instant
+     * for days that change between standard and daylight time.
+     */
+    static class OffsetTable {
+
+        private final ZoneRules rules = ZONE.getRules();
+        private final long firstDay;
+        private final int[] offsetMinutes;
+        private final int[] offsetMinutesAfter;
+        private final long[] transitionMinute;
+
+        OffsetTable(long firstDay, long lastDay) {
+            int days = Math.toIntExact(lastDay - firstDay + 1);
+            this.firstDay = firstDay;
+            this.offsetMinutes = new int[days];
+            this.offsetMinutesAfter = new int[days];
+            this.transitionMinute = new long[days];
+
+            for (int i = 0; i < days; i++) {
+                long dayStart = (firstDay + i) * MINUTES_PER_DAY - FILE_OFFSET_MINUTES;
+                Instant dayStartInstant = Instant.ofEpochSecond(dayStart * 60);
+
+                offsetMinutes[i] = rules.getOffset(dayStartInstant).getTotalSeconds() / 60;
+
+                ZoneOffsetTransition transition = rules.nextTransition(dayStartInstant);
+                long nextTransition = transition == null ? Long.MAX_VALUE : transition.getInstant().getEpochSecond() / 60;
+                if (nextTransition < dayStart + MINUTES_PER_DAY) {
+                    transitionMinute[i] = nextTransition;
+                    offsetMinutesAfter[i] = transition.getOffsetAfter().getTotalSeconds() / 60;
+                } else {
+                    transitionMinute[i] = Long.MAX_VALUE;
+                    offsetMinutesAfter[i] = offsetMinutes[i];
+                }
+            }
+        }
+
+        /**
+         * @param fileDay     the epoch day of the timestamp in the file
+         * @param utcMinute   the epoch minute of the timestamp in UTC
+         * @return the epoch minute of the timestamp as local market time
+         */
+        long toLocal(long fileDay, long utcMinute) {
+            long index = fileDay - firstDay;
+            if (index < 0 || index >= offsetMinutes.length) {
+                return utcMinute + rules.getOffset(Instant.ofEpochSecond(utcMinute * 60)).getTotalSeconds() / 60;
+            }
+
+            int i = (int) index;
+            return utcMinute + (utcMinute < transitionMinute[i] ? offsetMinutes[i] : offsetMinutesAfter[i]);
+        }
+    }
+
+    private static class Parser {
+
+        private final OffsetTable offsets;
+        private final CandleSeries.Builder candles = CandleSeries.builder();
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+
+        private int lineLength;
+        private int lineNumber;
+        private int position;
+
+        private int previousDate = -1;
+        private long previousDay;
+
+        Parser(int year) {
+            // Cover the surrounding days too, files can start before or end after the calendar year in local time
+            this.offsets = new OffsetTable(LocalDate.of(year, 1, 1).toEpochDay() - 1, LocalDate.of(year, 12, 31).toEpochDay() + 1);
+        }
+
+        CandleSeries parse(InputStream is) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        endOfLine();
+                    } else if (b != '\r') {
+                        if (lineLength == MAX_LINE_LENGTH) {
+                            throw new IOException("Line " + (lineNumber + 1) + " is too long");
+                        }
+                        line[lineLength++] = b;
+                    }
+                }
+            }
+            endOfLine();
+
+            return candles.build();
+        }
+
+        private void endOfLine() throws IOException {
+            lineNumber++;
+            if (lineLength > 0) {
+                parseLine();
+                lineLength = 0;
+            }
+        }
+
+        // 20190101 170200;1.145980;1.145990;1.145980;1.145980;0
+        private void parseLine() throws IOException {
+            position = 0;
+
+            int date = digits(8);
+            expect(' ');
+            int hour = digits(2);
+            int minute = digits(2);
+            digits(2); // Seconds are always zero for minute data
+            expect(';');
+
+            long open = price();
+            expect(';');
+            long high = price();
+            expect(';');
+            long low = price();
+            expect(';');
+            long close = price();
+
+            if (date != previousDate) {
+                previousDate = date;
+                previousDay = epochDay(date / 10000, date / 100 % 100, date % 100);
+            }
+
+            long utcMinute = previousDay * MINUTES_PER_DAY + hour * 60 + minute - FILE_OFFSET_MINUTES;
+
+            candles.add(offsets.toLocal(previousDay, utcMinute), open, high, low, close);
+        }
+
+        private int digits(int count) throws IOException {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                value = value * 10 + digit();
+            }
+            return value;
+        }
+
+        private int digit() throws IOException {
+            int digit = position < lineLength ? line[position] - '0' : -1;
+            if (digit < 0 || digit > 9) {
+                throw malformed();
+            }
+            position++;
+            return digit;
+        }
+
+        private void expect(char expected) throws IOException {
+            if (position >= lineLength || line[position] != expected) {
+                throw malformed();
+            }
+            position++;
+        }
+
+        /**
+         * Parses a decimal price into pippetes. Prices with more decimals than pippetes are rounded the same way
+         * {@link CSVHistoryFileReader} does, which is exact since the division is correctly rounded like parsing.
+         */
+        private long price() throws IOException {
+            long value = digit();
+            while (position < lineLength && line[position] != '.' && line[position] != ';') {
+                value = value * 10 + digit();
+            }
+
+            int decimals = 0;
+            if (position < lineLength && line[position] == '.') {
+                position++;
+                while (position < lineLength && line[position] != ';') {
+                    if (decimals == MAX_DECIMALS) {
+                        throw malformed();
+                    }
+                    value = value * 10 + digit();
+                    decimals++;
+                }
+            }
+
+            if (decimals > PIPPETE_DECIMALS) {
+                return pippetesFromDouble(false, value / POWERS_OF_TEN[decimals]);
+            }
+
+            return value * (long) POWERS_OF_TEN[PIPPETE_DECIMALS - decimals];
+        }
+
+        private IOException malformed() {
+            return new IOException("Malformed line " + lineNumber + " at column " + (position + 1) + ": " +
+                    new String(line, 0, lineLength));
+        }
+
+        /**
+         * Days since the epoch for a proleptic Gregorian date, without creating a {@link LocalDate}.
+         */
+        private static long epochDay(int year, int month, int day) {
+            long y = month <= 2 ? year - 1 : year;
+            long era = Math.floorDiv(y, 400);
+            long yearOfEra = y - era * 400;
+            long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+            long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            return era * 146097 + dayOfEra - 719468;
+        }
+    }
+}